@@ -0,0 +1,92 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the lexer, parser and evaluator hot paths over each expression
+ * shape, with the archive ExpressionEvaluator as a baseline. Run with
+ * {@code mvn -P benchmark verify}; the GC profiler is always attached, so
+ * every result comes with its allocation rate per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoreBenchmark {
+    @Param({"nested", "sum", "functions"})
+    public String shape;
+
+    private String source;
+    private List<Token> tokens;
+    private ASTNode tree;
+    private Evaluator evaluator;
+    private Expression expression;
+    private double[] frame;
+    private ExpressionEvaluator baseline;
+    private List<String> baselineTokens;
+
+    @Setup
+    public void setUp() {
+        source = ExpressionShapes.source(shape);
+        tokens = new SimpleLexer(source).tokenize();
+        tree = new Parser(tokens).parse();
+        evaluator = new Evaluator();
+        evaluator.setVariable("x", ExpressionShapes.X);
+        expression = Expression.compile(source);
+        frame = new double[] {ExpressionShapes.X};
+        baseline = new ExpressionEvaluator();
+        baselineTokens = ExpressionShapes.baselinePostfix(tree);
+    }
+
+    @Benchmark
+    public List<Token> simpleLexer() {
+        return new SimpleLexer(source).tokenize();
+    }
+
+    @Benchmark
+    public List<Token> dfaLexer() {
+        return new DfaLexer(source).tokenize();
+    }
+
+    @Benchmark
+    public ASTNode parser() {
+        return new Parser(tokens).parse();
+    }
+
+    @Benchmark
+    public double evaluator() {
+        return tree.accept(evaluator);
+    }
+
+    @Benchmark
+    public double compiledExpression() {
+        return expression.evaluate(frame);
+    }
+
+    /** Lex, parse and evaluate from source, the full cost of a one-off formula. */
+    @Benchmark
+    public double endToEnd() {
+        return new Parser(new SimpleLexer(source).tokenize()).parse().accept(evaluator);
+    }
+
+    /** The archive string-token postfix evaluator over the same formula. */
+    @Benchmark
+    public double archiveBaseline() {
+        return baseline.evaluatePostfix(baselineTokens);
+    }
+}
@@ -0,0 +1,84 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Representative expression shapes for the benchmarks.
+ * Every shape uses only what the archive ExpressionEvaluator understands
+ * (+ - * /, sin, cos and tan), so the same formula can be fed to both the
+ * current pipeline and the baseline.
+ */
+final class ExpressionShapes {
+    static final double X = 0.75;
+
+    private ExpressionShapes() {
+    }
+
+    /**
+     * @param shape one of "nested", "sum" or "functions"
+     * @return the source text of the shape, using the variable x
+     */
+    static String source(String shape) {
+        StringBuilder builder = new StringBuilder();
+        switch (shape) {
+            case "nested": {
+                // ( ( ( x + 1 ) * 2 ) - 3 ) ... 32 levels deep
+                String[] operators = {"+", "*", "-", "/"};
+                builder.append('x');
+                for (int i = 1; i <= 32; i++) {
+                    builder.insert(0, "( ").append(' ').append(operators[i % 4]).append(' ').append(i).append(" )");
+                }
+                return builder.toString();
+            }
+            case "sum":
+                // x + 1 + x + 2 + ... with 256 terms
+                builder.append('x');
+                for (int i = 1; i < 256; i++) {
+                    builder.append(i % 2 == 0 ? " + x" : " + " + i);
+                }
+                return builder.toString();
+            case "functions":
+                // sin ( x ) + cos ( x * 2 ) * tan ( x / 3 ) - ... 16 times
+                builder.append("sin ( x )");
+                for (int i = 1; i < 16; i++) {
+                    builder.append(" + cos ( x * ").append(i).append(" ) * tan ( x / ").append(i + 1)
+                        .append(" ) - sin ( x )");
+                }
+                return builder.toString();
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+    }
+
+    /**
+     * Lists a tree in postfix order as the archive evaluator's string tokens,
+     * with x replaced by a number. The archive's own infix conversion fails on
+     * any operator inside parentheses, so the baseline starts from postfix.
+     *
+     * @param tree the parsed shape
+     * @return the postfix tokens
+     */
+    static List<String> baselinePostfix(ASTNode tree) {
+        List<String> tokens = new ArrayList<>();
+        appendPostfix(tree, tokens);
+        return tokens;
+    }
+
+    private static void appendPostfix(ASTNode node, List<String> tokens) {
+        for (ASTNode child : node.getChildren()) {
+            appendPostfix(child, tokens);
+        }
+        if (node instanceof NumberNode) {
+            tokens.add(String.valueOf(((NumberNode) node).value));
+        } else if (node instanceof VariableNode) {
+            tokens.add(String.valueOf(X));
+        } else if (node instanceof BinaryOpNode) {
+            tokens.add(((BinaryOpNode) node).operator);
+        } else if (node instanceof FunctionNode) {
+            tokens.add(((FunctionNode) node).name);
+        } else {
+            throw new IllegalArgumentException("Not supported by the baseline: " + node);
+        }
+    }
+}
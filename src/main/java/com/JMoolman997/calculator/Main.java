@@ -1,9 +1,34 @@
 package com.JMoolman997.calculator;
 
-public class Main 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import com.JMoolman997.calculator.core.CsvBatchEvaluator;
+
+public class Main
 {
+    private static final String USAGE =
+        "Usage: Main --batch <input.csv> <output.csv> <formula> [<formula>...]";
+
     public static void main( String[] args )
     {
-        System.out.println( "Hello World!" );
-    }    
+        if (args.length < 4 || !args[0].equals("--batch")) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        String[] formulas = Arrays.copyOfRange(args, 3, args.length);
+        long start = System.nanoTime();
+        long rows;
+        try {
+            rows = new CsvBatchEvaluator(formulas).run(Paths.get(args[1]), Paths.get(args[2]));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Batch evaluation failed: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d rows in %.3f s (%.0f rows/s)%n", rows, seconds, rows / seconds);
+    }
 }
@@ -18,6 +18,14 @@ public interface ASTNode {
      */
     <T> T accept(ASTVisitor<T> visitor);
 
+    /**
+     * Accept a visitor whose operations return a primitive double.
+     *
+     * @param visitor the visitor to accept
+     * @return the result of the visitor's operation
+     */
+    double acceptDouble(DoubleASTVisitor visitor);
+
     /**
      * Add a child node to this node.
      * 
@@ -38,6 +46,13 @@ public interface ASTNode {
      * @return the list of child nodes
      */
     List<ASTNode> getChildren();
+
+    /**
+     * Make this node and all of its descendants unmodifiable.
+     * Frozen trees can be shared freely, for example between cache users;
+     * any later call to add or remove throws UnsupportedOperationException.
+     */
+    void freeze();
 }
 
 /**
@@ -55,6 +70,11 @@ class NumberNode implements ASTNode {
         return visitor.visitNumberNode(this);
     }
 
+    @Override
+    public double acceptDouble(DoubleASTVisitor visitor) {
+        return visitor.visitNumberNode(this);
+    }
+
     @Override
     public void add(ASTNode node) {
         throw new UnsupportedOperationException("Cannot add to a leaf node");
@@ -69,9 +89,16 @@ class NumberNode implements ASTNode {
     public List<ASTNode> getChildren() {
         return Collections.emptyList();
     }
+
+    @Override
+    public void freeze() {
+        // Leaf nodes have no children to protect
+    }
 }
 class VariableNode implements ASTNode {
     String name;
+    // Frame slot assigned by VariableBinder, or -1 while unbound
+    int slot = -1;
 
     VariableNode(String name) {
         this.name = name;
@@ -82,6 +109,11 @@ class VariableNode implements ASTNode {
         return visitor.visitVariableNode(this);
     }
 
+    @Override
+    public double acceptDouble(DoubleASTVisitor visitor) {
+        return visitor.visitVariableNode(this);
+    }
+
     @Override
     public void add(ASTNode node) {
         throw new UnsupportedOperationException("Cannot add to a leaf node");
@@ -96,16 +128,25 @@ class VariableNode implements ASTNode {
     public List<ASTNode> getChildren() {
         return Collections.emptyList();
     }
+
+    @Override
+    public void freeze() {
+        // Leaf nodes have no children to protect
+    }
 }
 /**
  * Represents a binary operation (e.g., addition, multiplication) in the AST.
  */
 class BinaryOpNode implements ASTNode {
-    String operator;
-    private final List<ASTNode> children = new ArrayList<>();
+    final String operator;
+    // Resolved from the operator once, or -1 if the operator is unknown
+    final int opcode;
+    private List<ASTNode> children = new ArrayList<>();
+    private boolean frozen;
 
     BinaryOpNode(String operator, ASTNode left, ASTNode right) {
         this.operator = operator;
+        this.opcode = Opcodes.lookupBinary(operator);
         add(left);
         add(right);
     }
@@ -115,6 +156,11 @@ class BinaryOpNode implements ASTNode {
         return visitor.visitBinaryOpNode(this);
     }
 
+    @Override
+    public double acceptDouble(DoubleASTVisitor visitor) {
+        return visitor.visitBinaryOpNode(this);
+    }
+
     @Override
     public void add(ASTNode node) {
         children.add(node);
@@ -129,17 +175,33 @@ class BinaryOpNode implements ASTNode {
     public List<ASTNode> getChildren() {
         return children;
     }
+
+    @Override
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        for (ASTNode child : children) {
+            child.freeze();
+        }
+        children = Collections.unmodifiableList(children);
+        frozen = true;
+    }
 }
 
 /**
  * Represents a unary operation (e.g., negation) in the AST.
  */
 class UnaryOpNode implements ASTNode {
-    String operator;
-    private final List<ASTNode> children = new ArrayList<>();
+    final String operator;
+    // Resolved from the operator once, or -1 if the operator is unknown
+    final int opcode;
+    private List<ASTNode> children = new ArrayList<>();
+    private boolean frozen;
 
     UnaryOpNode(String operator, ASTNode operand) {
         this.operator = operator;
+        this.opcode = Opcodes.lookupUnary(operator);
         add(operand);
     }
 
@@ -148,6 +210,11 @@ class UnaryOpNode implements ASTNode {
         return visitor.visitUnaryOpNode(this);
     }
 
+    @Override
+    public double acceptDouble(DoubleASTVisitor visitor) {
+        return visitor.visitUnaryOpNode(this);
+    }
+
     @Override
     public void add(ASTNode node) {
         children.add(node);
@@ -162,17 +229,33 @@ class UnaryOpNode implements ASTNode {
     public List<ASTNode> getChildren() {
         return children;
     }
+
+    @Override
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        for (ASTNode child : children) {
+            child.freeze();
+        }
+        children = Collections.unmodifiableList(children);
+        frozen = true;
+    }
 }
 
 /**
  * Represents a function call (e.g., sin, cos) in the AST.
  */
 class FunctionNode implements ASTNode {
-    String name;
-    private final List<ASTNode> arguments = new ArrayList<>();
+    final String name;
+    // Resolved from the name once, or -1 if the function is unknown
+    final int opcode;
+    private List<ASTNode> arguments = new ArrayList<>();
+    private boolean frozen;
 
     FunctionNode(String name, List<ASTNode> arguments) {
         this.name = name;
+        this.opcode = Opcodes.lookupFunction(name);
         this.arguments.addAll(arguments);
     }
 
@@ -181,6 +264,11 @@ class FunctionNode implements ASTNode {
         return visitor.visitFunctionNode(this);
     }
 
+    @Override
+    public double acceptDouble(DoubleASTVisitor visitor) {
+        return visitor.visitFunctionNode(this);
+    }
+
     @Override
     public void add(ASTNode node) {
         arguments.add(node);
@@ -195,4 +283,16 @@ class FunctionNode implements ASTNode {
     public List<ASTNode> getChildren() {
         return arguments;
     }
+
+    @Override
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        for (ASTNode child : arguments) {
+            child.freeze();
+        }
+        arguments = Collections.unmodifiableList(arguments);
+        frozen = true;
+    }
 }
@@ -0,0 +1,234 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Samples a function of one variable densely only where it needs it.
+ * A coarse uniform pass comes first, then each pass evaluates the midpoint of
+ * every unsettled segment and splits the segment only where the midpoint
+ * strays from the straight line between its ends by more than the tolerance,
+ * or where the function is defined at one end but not the other. Straight
+ * stretches therefore cost a handful of evaluations while bends, domain edges
+ * and asymptotes are refined down to the finest level.
+ * <p>
+ * A segment that still jumps by more than the break threshold at the finest
+ * level, with a midpoint outside the range of its ends, is taken to cross an
+ * asymptote and the line is broken there instead of drawing a spurious
+ * vertical stroke.
+ * <p>
+ * Sampling is meant to run off the event thread. The curve after every pass
+ * is handed to a progress callback, so a coarse curve can be shown at once and
+ * sharpened as passes complete, and a cancellation check is polled throughout.
+ * A curve that was already sampled elsewhere, such as one assembled from a
+ * {@link PlotTileCache}, can be refined instead of sampling from scratch.
+ * A sampler holds no state between calls and may be shared.
+ */
+public class AdaptiveSampler {
+    static final int INITIAL_SEGMENTS = 64;
+    // A jump of this many tolerances at the finest level is treated as a break
+    private static final double BREAK_FACTOR = 1000;
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+
+    private final double tolerance;
+    private final int maxDepth;
+
+    /**
+     * Constructs an AdaptiveSampler.
+     *
+     * @param tolerance the largest acceptable deviation from a straight segment,
+     *                  in y units; about half a pixel of the target view
+     * @param maxDepth the number of times an initial segment may be halved
+     * @throws IllegalArgumentException if tolerance is not positive or maxDepth is negative or above 24
+     */
+    public AdaptiveSampler(double tolerance, int maxDepth) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance must be positive: " + tolerance);
+        }
+        if (maxDepth < 0 || maxDepth > 24) {
+            throw new IllegalArgumentException("Depth must be between 0 and 24: " + maxDepth);
+        }
+        this.tolerance = tolerance;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Samples a function over [x0, x1].
+     *
+     * @param function the function; it may use at most the one given variable
+     * @param variable the name of the variable to vary
+     * @param x0 the left end of the range
+     * @param x1 the right end of the range
+     * @param cancelled polled during sampling; once it returns true sampling stops
+     * @param progress receives the curve after every pass, the last one complete; may be null
+     * @return the finished curve, or null if sampling was cancelled
+     * @throws IllegalArgumentException if the range is empty or the function uses another variable
+     */
+    public SampledCurve sample(Expression function, String variable, double x0, double x1,
+                               BooleanSupplier cancelled, Consumer<SampledCurve> progress) {
+        if (!(x0 < x1)) {
+            throw new IllegalArgumentException("Empty range: [" + x0 + ", " + x1 + "]");
+        }
+        int slot = slotOf(function, variable);
+        Expression.Context context = function.newContext();
+
+        int n = INITIAL_SEGMENTS + 1;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        // The depth of the segment starting at each point, or -1 once it is settled
+        byte[] depths = new byte[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = i == n - 1 ? x1 : x0 + (x1 - x0) * i / INITIAL_SEGMENTS;
+            ys[i] = evaluate(context, slot, xs[i]);
+        }
+        depths[n - 1] = -1;
+        return refine(context, slot, xs, ys, depths, n, cancelled, progress);
+    }
+
+    /**
+     * Refines a curve that was sampled elsewhere. Each inner sample is first
+     * checked against the straight line between its neighbours, with the same
+     * test a pass applies to a midpoint. Only the segments beside a sample
+     * that fails are refined, so a curve that is already smooth at the
+     * resolution of the seed costs no evaluations at all. The seed counts as
+     * depth 0.
+     *
+     * @param function the function the seed was sampled from; it may use at most the one given variable
+     * @param variable the name of the variable to vary
+     * @param seed the samples to start from, ordered by x
+     * @param cancelled polled during sampling; once it returns true sampling stops
+     * @param progress receives the curve after every pass, the last one complete; may be null
+     * @return the finished curve, or null if sampling was cancelled
+     * @throws IllegalArgumentException if the seed has fewer than two points or the function uses another variable
+     */
+    public SampledCurve refine(Expression function, String variable, SampledCurve seed,
+                               BooleanSupplier cancelled, Consumer<SampledCurve> progress) {
+        int n = seed.size();
+        if (n < 2) {
+            throw new IllegalArgumentException("Seed has " + n + " points but at least 2 are required");
+        }
+        int slot = slotOf(function, variable);
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        byte[] depths = new byte[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = seed.x(i);
+            ys[i] = seed.y(i);
+            depths[i] = -1;
+        }
+        depths[0] = (byte) (n == 2 ? 0 : -1);
+        for (int i = 1; i < n - 1; i++) {
+            double t = (xs[i] - xs[i - 1]) / (xs[i + 1] - xs[i - 1]);
+            if (needsSplit(ys[i - 1], ys[i], ys[i + 1], ys[i - 1] + t * (ys[i + 1] - ys[i - 1]))) {
+                depths[i - 1] = 0;
+                depths[i] = 0;
+            }
+        }
+        return refine(function.newContext(), slot, xs, ys, depths, n, cancelled, progress);
+    }
+
+    /**
+     * Runs refinement passes until every segment is settled.
+     */
+    private SampledCurve refine(Expression.Context context, int slot, double[] xs, double[] ys, byte[] depths,
+                                int n, BooleanSupplier cancelled, Consumer<SampledCurve> progress) {
+        double breakThreshold = tolerance * BREAK_FACTOR;
+        boolean refined = true;
+        int evaluations = 0;
+        while (refined) {
+            if (cancelled.getAsBoolean()) {
+                return null;
+            }
+            if (progress != null) {
+                progress.accept(snapshot(xs, ys, n, false));
+            }
+
+            refined = false;
+            double[] nextXs = new double[2 * n];
+            double[] nextYs = new double[2 * n];
+            byte[] nextDepths = new byte[2 * n];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                nextXs[m] = xs[i];
+                nextYs[m] = ys[i];
+                nextDepths[m++] = depths[i];
+                if (depths[i] < 0) {
+                    continue;
+                }
+                if (++evaluations % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    return null;
+                }
+
+                double ya = ys[i];
+                double yb = ys[i + 1];
+                double xm = 0.5 * (xs[i] + xs[i + 1]);
+                double ym = evaluate(context, slot, xm);
+                boolean finiteA = Double.isFinite(ya);
+                boolean finiteB = Double.isFinite(yb);
+                boolean split = needsSplit(ya, ym, yb, 0.5 * (ya + yb));
+
+                if (split && depths[i] < maxDepth) {
+                    byte depth = (byte) (depths[i] + 1);
+                    nextDepths[m - 1] = depth;
+                    nextXs[m] = xm;
+                    nextYs[m] = ym;
+                    nextDepths[m++] = depth;
+                    refined = true;
+                } else {
+                    nextDepths[m - 1] = -1;
+                    nextXs[m] = xm;
+                    boolean jump = finiteA && finiteB && Math.abs(yb - ya) > breakThreshold
+                        && (ym > Math.max(ya, yb) || ym < Math.min(ya, yb));
+                    nextYs[m] = split && jump ? Double.NaN : ym;
+                    nextDepths[m++] = -1;
+                }
+            }
+            xs = nextXs;
+            ys = nextYs;
+            depths = nextDepths;
+            n = m;
+        }
+
+        SampledCurve curve = snapshot(xs, ys, n, true);
+        if (progress != null) {
+            progress.accept(curve);
+        }
+        return curve;
+    }
+
+    /**
+     * Decides whether a segment must be split, given the value at an inner
+     * point and the value the straight line between its ends has there.
+     */
+    private boolean needsSplit(double ya, double ym, double yb, double line) {
+        if (Double.isFinite(ya) && Double.isFinite(yb)) {
+            return !Double.isFinite(ym) || Math.abs(ym - line) > tolerance;
+        }
+        // Locate the edge of the domain, but leave wholly undefined stretches alone
+        return Double.isFinite(ya) || Double.isFinite(yb) || Double.isFinite(ym);
+    }
+
+    private static int slotOf(Expression function, String variable) {
+        int slot = function.slotOf(variable);
+        if (function.variables().size() > (slot < 0 ? 0 : 1)) {
+            throw new IllegalArgumentException("Function of " + function.variables()
+                + " cannot be plotted against " + variable);
+        }
+        return slot;
+    }
+
+    private static double evaluate(Expression.Context context, int slot, double x) {
+        if (slot >= 0) {
+            context.set(slot, x);
+        }
+        return context.evaluate();
+    }
+
+    private static SampledCurve snapshot(double[] xs, double[] ys, int n, boolean complete) {
+        double[] x = new double[n];
+        double[] y = new double[n];
+        System.arraycopy(xs, 0, x, 0, n);
+        System.arraycopy(ys, 0, y, 0, n);
+        return new SampledCurve(x, y, n, complete);
+    }
+}
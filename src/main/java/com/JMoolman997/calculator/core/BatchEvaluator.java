@@ -0,0 +1,159 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates one expression over many points stored column by column.
+ * Column {@code i} holds the values of the variable in slot {@code i} of the
+ * expression's layout. Instead of walking the expression once per point, the
+ * points are processed in chunks and each instruction of the compiled
+ * program is applied to a whole chunk at once, which keeps the inner loops
+ * tight enough to be vectorised.
+ * <p>
+ * The Vector API is used for the arithmetic when the jdk.incubator.vector
+ * module is available; otherwise plain loops give identical results. An
+ * instance reuses its scratch buffers between calls and is not thread-safe.
+ */
+public class BatchEvaluator {
+    static final int CHUNK_SIZE = 1024;
+
+    private static final BatchKernels DEFAULT_KERNELS = loadKernels();
+
+    private final BatchKernels kernels;
+    private double[][] registers = new double[0][];
+
+    /**
+     * Constructs a BatchEvaluator that uses the Vector API when it is available.
+     */
+    public BatchEvaluator() {
+        this(DEFAULT_KERNELS);
+    }
+
+    BatchEvaluator(BatchKernels kernels) {
+        this.kernels = kernels;
+    }
+
+    /**
+     * Evaluates a compiled expression at every point.
+     *
+     * @param expression the expression to evaluate
+     * @param columns the variable values, one column per variable in the order of
+     *                {@link Expression#variables()}
+     * @param out receives the value at each point; its length is the number of points
+     * @throws IllegalArgumentException if there are too few columns or a column is too short
+     */
+    public void evaluate(Expression expression, double[][] columns, double[] out) {
+        evaluate(expression.bound(), columns, out);
+    }
+
+    /**
+     * Evaluates an expression at every point.
+     *
+     * @param expression the expression to evaluate
+     * @param columns the variable values, one column per layout slot
+     * @param out receives the value at each point; its length is the number of points
+     * @throws IllegalArgumentException if there are too few columns or a column is too short
+     */
+    void evaluate(BoundExpression expression, double[][] columns, double[] out) {
+        evaluate(expression.program(), columns, out, 0, out.length);
+    }
+
+    /**
+     * Evaluates a compiled program at the points in [from, to).
+     *
+     * @param program the program to evaluate
+     * @param columns the variable values, one column per layout slot
+     * @param out receives the value at each point, at the same index as its inputs
+     * @param from the first point to evaluate
+     * @param to one past the last point to evaluate
+     * @throws IllegalArgumentException if there are too few columns or a column is too short
+     */
+    void evaluate(PostfixProgram program, double[][] columns, double[] out, int from, int to) {
+        checkColumns(program.layout, columns, to);
+        ensureRegisters(program.maxStackDepth);
+
+        long begin = EngineMetrics.start();
+        for (int start = from; start < to; start += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, to - start);
+            run(program, columns, start, length);
+            System.arraycopy(registers[0], 0, out, start, length);
+        }
+        EngineMetrics.BATCH.record(begin);
+    }
+
+    /**
+     * Runs every instruction of the program over one chunk of points.
+     */
+    private void run(PostfixProgram program, double[][] columns, int start, int length) {
+        final int[] code = program.code;
+        final double[][] registers = this.registers;
+        int sp = -1;
+        int pc = 0;
+
+        while (pc < code.length) {
+            int opcode = code[pc++];
+            switch (opcode) {
+                case Opcodes.CONST:
+                    Arrays.fill(registers[++sp], 0, length, program.constants[code[pc++]]);
+                    break;
+                case Opcodes.LOAD:
+                    System.arraycopy(columns[code[pc++]], start, registers[++sp], 0, length);
+                    break;
+                default:
+                    if (Opcodes.arity(opcode) == 2) {
+                        sp--;
+                        kernels.binary(opcode, registers[sp], registers[sp + 1], length);
+                    } else {
+                        kernels.unary(opcode, registers[sp], length);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void ensureRegisters(int depth) {
+        int count = Math.max(depth, 1);
+        if (registers.length < count) {
+            int old = registers.length;
+            registers = Arrays.copyOf(registers, count);
+            for (int i = old; i < count; i++) {
+                registers[i] = new double[CHUNK_SIZE];
+            }
+        }
+    }
+
+    static void checkColumns(VariableLayout layout, double[][] columns, int points) {
+        if (columns.length < layout.size()) {
+            throw new IllegalArgumentException("Expected " + layout.size() + " columns but got " + columns.length);
+        }
+        for (int i = 0; i < layout.size(); i++) {
+            if (columns[i].length < points) {
+                throw new IllegalArgumentException("Column " + layout.name(i) + " has "
+                    + columns[i].length + " values but " + points + " are required");
+            }
+        }
+    }
+
+    /**
+     * Picks the Vector API kernels when the incubator module is present at run time.
+     */
+    private static BatchKernels loadKernels() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (BatchKernels) Class.forName("com.JMoolman997.calculator.core.VectorKernels")
+                    .getDeclaredConstructor()
+                    .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall back to the scalar kernels below
+            }
+        }
+        return new ScalarKernels();
+    }
+
+    /**
+     * @return the kernels this evaluator runs on
+     */
+    BatchKernels kernels() {
+        return kernels;
+    }
+}
@@ -0,0 +1,108 @@
+package com.JMoolman997.calculator.core;
+
+/**
+ * Element-wise array operations used by {@link BatchEvaluator}.
+ * Every operation works in place on its first array, over the first
+ * {@code length} elements. Implementations must give bit-for-bit the same
+ * results as {@link ScalarKernels}.
+ */
+interface BatchKernels {
+    /**
+     * Applies a unary operator or function: {@code a[i] = op(a[i])}.
+     */
+    void unary(int opcode, double[] a, int length);
+
+    /**
+     * Applies a binary operator: {@code a[i] = a[i] op b[i]}.
+     */
+    void binary(int opcode, double[] a, double[] b, int length);
+}
+
+/**
+ * Plain loops over the arrays. The operator is chosen once per call, so
+ * each loop body is a single operation the JIT can unroll.
+ */
+class ScalarKernels implements BatchKernels {
+    @Override
+    public void unary(int opcode, double[] a, int length) {
+        unary(opcode, a, 0, length);
+    }
+
+    @Override
+    public void binary(int opcode, double[] a, double[] b, int length) {
+        binary(opcode, a, b, 0, length);
+    }
+
+    /**
+     * Applies a unary operator or function to the elements in [from, to).
+     */
+    void unary(int opcode, double[] a, int from, int to) {
+        switch (opcode) {
+            case Opcodes.NEG:
+                for (int i = from; i < to; i++) {
+                    a[i] = -a[i];
+                }
+                break;
+            case Opcodes.ABS:
+                for (int i = from; i < to; i++) {
+                    a[i] = Math.abs(a[i]);
+                }
+                break;
+            case Opcodes.SQRT:
+                for (int i = from; i < to; i++) {
+                    a[i] = Math.sqrt(a[i]);
+                }
+                break;
+            case Opcodes.SIN:
+                for (int i = from; i < to; i++) {
+                    a[i] = Math.sin(a[i]);
+                }
+                break;
+            case Opcodes.COS:
+                for (int i = from; i < to; i++) {
+                    a[i] = Math.cos(a[i]);
+                }
+                break;
+            default:
+                for (int i = from; i < to; i++) {
+                    a[i] = Opcodes.apply(opcode, a[i]);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Applies a binary operator to the elements in [from, to).
+     */
+    void binary(int opcode, double[] a, double[] b, int from, int to) {
+        switch (opcode) {
+            case Opcodes.ADD:
+                for (int i = from; i < to; i++) {
+                    a[i] = a[i] + b[i];
+                }
+                break;
+            case Opcodes.SUB:
+                for (int i = from; i < to; i++) {
+                    a[i] = a[i] - b[i];
+                }
+                break;
+            case Opcodes.MUL:
+                for (int i = from; i < to; i++) {
+                    a[i] = a[i] * b[i];
+                }
+                break;
+            case Opcodes.DIV:
+                for (int i = from; i < to; i++) {
+                    a[i] = a[i] / b[i];
+                }
+                break;
+            case Opcodes.POW:
+                for (int i = from; i < to; i++) {
+                    a[i] = Math.pow(a[i], b[i]);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Not a binary opcode: " + opcode);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.JMoolman997.calculator.core;
+
+/**
+ * A frozen syntax tree whose variables have been bound to frame slots.
+ * It is evaluated against a caller-supplied double[] frame laid out by
+ * {@link #layout()}, so no variable is looked up by name at run time.
+ */
+final class BoundExpression {
+    // Bound trees read only their frame, so one evaluator per thread serves every expression
+    private static final ThreadLocal<DoubleEvaluator> EVALUATORS = ThreadLocal.withInitial(DoubleEvaluator::new);
+
+    private final ASTNode root;
+    private final VariableLayout layout;
+    // Compiled on first use; a race only compiles the same immutable program twice
+    private volatile PostfixProgram program;
+
+    BoundExpression(ASTNode root, VariableLayout layout) {
+        this.root = root;
+        this.layout = layout;
+    }
+
+    /**
+     * @return the root of the bound tree
+     */
+    ASTNode root() {
+        return root;
+    }
+
+    /**
+     * @return the layout of the frames this expression is evaluated against
+     */
+    VariableLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return the expression compiled to a postfix program with the same layout
+     */
+    PostfixProgram program() {
+        PostfixProgram compiled = program;
+        if (compiled == null) {
+            compiled = PostfixProgram.compile(root, layout);
+            program = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * Evaluates the expression.
+     *
+     * @param frame the variable values, indexed by slot
+     * @return the value of the expression
+     * @throws IllegalArgumentException if the frame is smaller than the layout
+     */
+    double evaluate(double[] frame) {
+        return EVALUATORS.get().evaluate(this, frame);
+    }
+}
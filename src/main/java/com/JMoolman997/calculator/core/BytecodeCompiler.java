@@ -0,0 +1,478 @@
+package com.JMoolman997.calculator.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Cleaner;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compiles syntax trees into hidden classes generated at runtime.
+ * Each expression becomes straight-line JVM bytecode that reads its variables
+ * from a double[] and calls {@link Math} directly, which lets the JIT inline
+ * the whole expression. Generated classes are unloaded once their evaluator is
+ * no longer reachable; at most a fixed number of them are alive at any time.
+ * When that limit is reached, or a class cannot be generated (for example
+ * because the expression is too large for one method), the expression is
+ * evaluated by the interpreted {@link Evaluator} instead.
+ */
+class BytecodeCompiler {
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final String CLASS_NAME = "com/JMoolman997/calculator/core/GeneratedEvaluator";
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    private final int maxLiveClasses;
+    private final AtomicInteger liveClasses = new AtomicInteger();
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * Constructs a BytecodeCompiler that keeps at most the given number of generated classes alive.
+     *
+     * @param maxLiveClasses the maximum number of live generated classes
+     * @throws IllegalArgumentException if maxLiveClasses is negative
+     */
+    BytecodeCompiler(int maxLiveClasses) {
+        if (maxLiveClasses < 0) {
+            throw new IllegalArgumentException("Class limit must not be negative: " + maxLiveClasses);
+        }
+        this.maxLiveClasses = maxLiveClasses;
+    }
+
+    /**
+     * Compiles a syntax tree.
+     *
+     * @param ast the root of the tree to compile
+     * @param layout the frame layout to resolve variables against
+     * @return an evaluator for the expression, generated or interpreted
+     * @throws RuntimeException if the tree uses an unknown operator, function or variable
+     */
+    CompiledEvaluator compile(ASTNode ast, VariableLayout layout) {
+        byte[] classFile;
+        try {
+            classFile = new ClassFileBuilder(layout).build(ast);
+        } catch (IllegalStateException e) {
+            // The expression does not fit the limits of a single method
+            fallbacks.increment();
+            return new InterpretedEvaluator(ast, layout);
+        }
+
+        if (liveClasses.incrementAndGet() > maxLiveClasses) {
+            liveClasses.decrementAndGet();
+            fallbacks.increment();
+            return new InterpretedEvaluator(ast, layout);
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            CompiledEvaluator evaluator = (CompiledEvaluator) lookup
+                .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                .invoke();
+            AtomicInteger counter = liveClasses;
+            CLEANER.register(evaluator, counter::decrementAndGet);
+            return evaluator;
+        } catch (Throwable e) {
+            if (e instanceof Error && !(e instanceof LinkageError)) {
+                throw (Error) e;
+            }
+            liveClasses.decrementAndGet();
+            fallbacks.increment();
+            return new InterpretedEvaluator(ast, layout);
+        }
+    }
+
+    /**
+     * @return the number of generated classes that are still reachable
+     */
+    int liveClassCount() {
+        return liveClasses.get();
+    }
+
+    /**
+     * @return the number of compilations that fell back to the interpreter
+     */
+    long fallbackCount() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * Evaluates an expression with the tree-walking {@link Evaluator}.
+     * Each thread gets its own evaluator, since they hold variable state.
+     */
+    private static class InterpretedEvaluator implements CompiledEvaluator {
+        private final ASTNode ast;
+        private final VariableLayout layout;
+        private final ThreadLocal<Evaluator> evaluators = ThreadLocal.withInitial(Evaluator::new);
+
+        InterpretedEvaluator(ASTNode ast, VariableLayout layout) {
+            this.ast = ast;
+            this.layout = layout;
+        }
+
+        @Override
+        public double evaluate(double[] values) {
+            Evaluator evaluator = evaluators.get();
+            for (int i = 0; i < layout.size(); i++) {
+                evaluator.setVariable(layout.name(i), values[i]);
+            }
+            return ast.accept(evaluator);
+        }
+    }
+
+    /**
+     * Writes the class file of a generated evaluator.
+     * The evaluate method is a single basic block, so no stack map frames are needed.
+     */
+    private static class ClassFileBuilder implements ASTVisitor<Void> {
+        private static final int ACC_PUBLIC = 0x0001;
+        private static final int ACC_FINAL = 0x0010;
+        private static final int ACC_SUPER = 0x0020;
+
+        private static final int CONSTANT_UTF8 = 1;
+        private static final int CONSTANT_DOUBLE = 6;
+        private static final int CONSTANT_CLASS = 7;
+        private static final int CONSTANT_METHODREF = 10;
+        private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+        private static final int ICONST_0 = 0x03;
+        private static final int DCONST_0 = 0x0e;
+        private static final int DCONST_1 = 0x0f;
+        private static final int BIPUSH = 0x10;
+        private static final int SIPUSH = 0x11;
+        private static final int LDC2_W = 0x14;
+        private static final int ALOAD_0 = 0x2a;
+        private static final int ALOAD_1 = 0x2b;
+        private static final int DALOAD = 0x31;
+        private static final int DADD = 0x63;
+        private static final int DSUB = 0x67;
+        private static final int DMUL = 0x6b;
+        private static final int DDIV = 0x6f;
+        private static final int DNEG = 0x77;
+        private static final int DRETURN = 0xaf;
+        private static final int RETURN = 0xb1;
+        private static final int INVOKESPECIAL = 0xb7;
+        private static final int INVOKESTATIC = 0xb8;
+
+        private final VariableLayout layout;
+        private final ByteBuffer constantPool = new ByteBuffer();
+        private final Map<String, Integer> constantIndexes = new HashMap<>();
+        private int constantCount = 1;
+
+        private final ByteBuffer code = new ByteBuffer();
+        private int stackDepth = 0;
+        private int maxStackDepth = 0;
+
+        ClassFileBuilder(VariableLayout layout) {
+            this.layout = layout;
+        }
+
+        byte[] build(ASTNode ast) {
+            ast.accept(this);
+            code.u1(DRETURN);
+            if (code.length() > MAX_CODE_LENGTH) {
+                throw new IllegalStateException("Expression too large for a generated method");
+            }
+
+            int thisClass = classConstant(CLASS_NAME);
+            int superClass = classConstant("java/lang/Object");
+            int interfaceClass = classConstant(CompiledEvaluator.class.getName().replace('.', '/'));
+            int objectInit = methodConstant("java/lang/Object", "<init>", "()V");
+            int codeName = utf8Constant("Code");
+            int initName = utf8Constant("<init>");
+            int initType = utf8Constant("()V");
+            int evaluateName = utf8Constant("evaluate");
+            int evaluateType = utf8Constant("([D)D");
+
+            ByteBuffer out = new ByteBuffer();
+            out.u4(0xCAFEBABE);
+            out.u2(0);
+            out.u2(61);
+            out.u2(constantCount);
+            out.bytes(constantPool);
+            out.u2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.u2(thisClass);
+            out.u2(superClass);
+            out.u2(1);
+            out.u2(interfaceClass);
+            out.u2(0);
+            out.u2(2);
+
+            ByteBuffer init = new ByteBuffer();
+            init.u1(ALOAD_0);
+            init.u1(INVOKESPECIAL);
+            init.u2(objectInit);
+            init.u1(RETURN);
+            method(out, initName, initType, codeName, init, 1, 1);
+            method(out, evaluateName, evaluateType, codeName, code, maxStackDepth, 2);
+
+            out.u2(0);
+            return out.toByteArray();
+        }
+
+        private void method(ByteBuffer out, int name, int type, int codeName, ByteBuffer body,
+                            int maxStack, int maxLocals) {
+            out.u2(ACC_PUBLIC);
+            out.u2(name);
+            out.u2(type);
+            out.u2(1);
+            out.u2(codeName);
+            out.u4(12 + body.length());
+            out.u2(maxStack);
+            out.u2(maxLocals);
+            out.u4(body.length());
+            out.bytes(body);
+            out.u2(0);
+            out.u2(0);
+        }
+
+        @Override
+        public Void visitNumberNode(NumberNode node) {
+            if (Double.doubleToRawLongBits(node.value) == 0L) {
+                code.u1(DCONST_0);
+            } else if (node.value == 1.0) {
+                code.u1(DCONST_1);
+            } else {
+                code.u1(LDC2_W);
+                code.u2(doubleConstant(node.value));
+            }
+            push(2);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableNode(VariableNode node) {
+            int slot = layout.slotOf(node.name);
+            if (slot < 0) {
+                throw new RuntimeException("Undefined variable: " + node.name);
+            }
+            code.u1(ALOAD_1);
+            push(1);
+            if (slot <= 5) {
+                code.u1(ICONST_0 + slot);
+            } else if (slot <= Byte.MAX_VALUE) {
+                code.u1(BIPUSH);
+                code.u1(slot);
+            } else {
+                code.u1(SIPUSH);
+                code.u2(slot);
+            }
+            push(1);
+            code.u1(DALOAD);
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryOpNode(BinaryOpNode node) {
+            int opcode = Opcodes.binary(node);
+            List<ASTNode> children = node.getChildren();
+            children.get(0).accept(this);
+            children.get(1).accept(this);
+            binary(opcode);
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryOpNode(UnaryOpNode node) {
+            Opcodes.unary(node);
+            node.getChildren().get(0).accept(this);
+            code.u1(DNEG);
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionNode(FunctionNode node) {
+            List<ASTNode> arguments = node.getChildren();
+            int opcode = Opcodes.function(node);
+            if (opcode == Opcodes.POW) {
+                arguments.get(0).accept(this);
+                arguments.get(1).accept(this);
+                binary(opcode);
+                return null;
+            }
+
+            boolean reciprocal = opcode == Opcodes.CSC || opcode == Opcodes.SEC || opcode == Opcodes.COT;
+            if (reciprocal) {
+                code.u1(DCONST_1);
+                push(2);
+            }
+            arguments.get(0).accept(this);
+            switch (opcode) {
+                case Opcodes.SIN:
+                case Opcodes.CSC:
+                    math("sin", "(D)D");
+                    break;
+                case Opcodes.COS:
+                case Opcodes.SEC:
+                    math("cos", "(D)D");
+                    break;
+                case Opcodes.TAN:
+                case Opcodes.COT:
+                    math("tan", "(D)D");
+                    break;
+                default:
+                    math(Opcodes.name(opcode), "(D)D");
+                    break;
+            }
+            if (reciprocal) {
+                code.u1(DDIV);
+                push(-2);
+            }
+            return null;
+        }
+
+        private void binary(int opcode) {
+            switch (opcode) {
+                case Opcodes.ADD:
+                    code.u1(DADD);
+                    break;
+                case Opcodes.SUB:
+                    code.u1(DSUB);
+                    break;
+                case Opcodes.MUL:
+                    code.u1(DMUL);
+                    break;
+                case Opcodes.DIV:
+                    code.u1(DDIV);
+                    break;
+                case Opcodes.POW:
+                    math("pow", "(DD)D");
+                    return;
+                default:
+                    throw new IllegalArgumentException("Not a binary opcode: " + opcode);
+            }
+            push(-2);
+        }
+
+        private void math(String name, String descriptor) {
+            code.u1(INVOKESTATIC);
+            code.u2(methodConstant("java/lang/Math", name, descriptor));
+            // Arguments are popped and one double result is pushed
+            push(descriptor.equals("(DD)D") ? -2 : 0);
+        }
+
+        private void push(int words) {
+            stackDepth += words;
+            maxStackDepth = Math.max(maxStackDepth, stackDepth);
+            if (maxStackDepth > 0xFFFF) {
+                throw new IllegalStateException("Expression too deep for a generated method");
+            }
+        }
+
+        private int utf8Constant(String value) {
+            Integer index = constantIndexes.get("U" + value);
+            if (index == null) {
+                constantPool.u1(CONSTANT_UTF8);
+                constantPool.utf8(value);
+                index = constantCount++;
+                constantIndexes.put("U" + value, index);
+            }
+            return index;
+        }
+
+        private int classConstant(String internalName) {
+            Integer index = constantIndexes.get("C" + internalName);
+            if (index == null) {
+                int name = utf8Constant(internalName);
+                constantPool.u1(CONSTANT_CLASS);
+                constantPool.u2(name);
+                index = constantCount++;
+                constantIndexes.put("C" + internalName, index);
+            }
+            return index;
+        }
+
+        private int methodConstant(String owner, String name, String descriptor) {
+            String key = "M" + owner + '.' + name + descriptor;
+            Integer index = constantIndexes.get(key);
+            if (index == null) {
+                int ownerClass = classConstant(owner);
+                int methodName = utf8Constant(name);
+                int methodType = utf8Constant(descriptor);
+                constantPool.u1(CONSTANT_NAME_AND_TYPE);
+                constantPool.u2(methodName);
+                constantPool.u2(methodType);
+                int nameAndType = constantCount++;
+                constantPool.u1(CONSTANT_METHODREF);
+                constantPool.u2(ownerClass);
+                constantPool.u2(nameAndType);
+                index = constantCount++;
+                constantIndexes.put(key, index);
+            }
+            return index;
+        }
+
+        private int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            String key = "D" + bits;
+            Integer index = constantIndexes.get(key);
+            if (index == null) {
+                constantPool.u1(CONSTANT_DOUBLE);
+                constantPool.u4((int) (bits >>> 32));
+                constantPool.u4((int) bits);
+                index = constantCount;
+                // Double constants take up two constant pool entries
+                constantCount += 2;
+                constantIndexes.put(key, index);
+            }
+            if (index > 0xFFFF) {
+                throw new IllegalStateException("Too many constants for a generated class");
+            }
+            return index;
+        }
+    }
+
+    /**
+     * A minimal growable big-endian byte buffer for class file output.
+     */
+    private static class ByteBuffer {
+        private byte[] data = new byte[64];
+        private int length = 0;
+
+        void u1(int value) {
+            ensure(1);
+            data[length++] = (byte) value;
+        }
+
+        void u2(int value) {
+            ensure(2);
+            data[length++] = (byte) (value >>> 8);
+            data[length++] = (byte) value;
+        }
+
+        void u4(int value) {
+            u2(value >>> 16);
+            u2(value);
+        }
+
+        void utf8(String value) {
+            // Names used here are plain ASCII, so modified UTF-8 is the identity encoding
+            u2(value.length());
+            ensure(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                data[length++] = (byte) value.charAt(i);
+            }
+        }
+
+        void bytes(ByteBuffer other) {
+            ensure(other.length);
+            System.arraycopy(other.data, 0, data, length, other.length);
+            length += other.length;
+        }
+
+        int length() {
+            return length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, length);
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.JMoolman997.calculator.core;
+
+/**
+ * An expression compiled to a form that evaluates directly on primitive variable values.
+ */
+public interface CompiledEvaluator {
+    /**
+     * Evaluates the expression.
+     *
+     * @param variables the variable values, indexed by the slots the expression was compiled with
+     * @return the value of the expression
+     */
+    double evaluate(double[] variables);
+}
@@ -0,0 +1,372 @@
+package com.JMoolman997.calculator.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates formulas over every row of a CSV file.
+ * The first line of the input names the columns, and each formula may use
+ * any of them as a variable. Every following row binds those variables and
+ * produces one output line with the value of each formula.
+ * <p>
+ * The input is memory-mapped one window at a time and numbers are parsed
+ * straight from the mapped bytes, so no String is created per field and heap
+ * use does not grow with the size of the file. Results are written through a
+ * single reused buffer into the output channel.
+ */
+public class CsvBatchEvaluator {
+    static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    // Every integer below 10^15 and every power of ten up to 10^22 is an exact double
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final String[] formulas;
+    private final int windowSize;
+
+    // Per-run parse state
+    private ByteBuffer input;
+    private int pos;
+    private int limit;
+    private boolean lastWindow;
+    private final byte[] scratch = new byte[64];
+
+    /**
+     * Constructs a CsvBatchEvaluator for the given formulas.
+     *
+     * @param formulas the formulas to evaluate for each row, in output column order
+     * @throws IllegalArgumentException if no formula is given
+     */
+    public CsvBatchEvaluator(String... formulas) {
+        this(DEFAULT_WINDOW_SIZE, formulas);
+    }
+
+    CsvBatchEvaluator(int windowSize, String... formulas) {
+        if (formulas.length == 0) {
+            throw new IllegalArgumentException("At least one formula is required");
+        }
+        this.formulas = formulas.clone();
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Evaluates every formula over every row of the input and writes the results.
+     * The output starts with a header line holding the formulas.
+     *
+     * @param inputPath the CSV file to read
+     * @param outputPath the file to write, replaced if it exists
+     * @return the number of rows evaluated
+     * @throws IOException if either file cannot be read or written
+     * @throws IllegalArgumentException if the input is malformed
+     * @throws RuntimeException if a formula cannot be parsed or uses an unknown column
+     */
+    public long run(Path inputPath, Path outputPath) throws IOException {
+        try (FileChannel in = FileChannel.open(inputPath, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(outputPath, StandardOpenOption.WRITE,
+                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return run(in, out);
+        } finally {
+            input = null;
+        }
+    }
+
+    private long run(FileChannel in, FileChannel out) throws IOException {
+        long size = in.size();
+        long position = 0;
+        map(in, position, size);
+
+        String[] columns = readHeader();
+        position += pos;
+
+        StackMachine[] machines = new StackMachine[formulas.length];
+        for (int i = 0; i < formulas.length; i++) {
+            machines[i] = new StackMachine(Expression.compile(formulas[i], columns).bound().program());
+        }
+        double[] frame = new double[columns.length];
+
+        ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        StringBuilder line = new StringBuilder();
+        line.append(String.join(",", formulas)).append('\n');
+        write(line, output, out);
+
+        long rows = 0;
+        while (position < size) {
+            map(in, position, size);
+            int rowStart = 0;
+            while (pos < limit) {
+                if (skipBlankLine()) {
+                    rowStart = pos;
+                    continue;
+                }
+                if (!readRow(frame, rows + 2)) {
+                    break;
+                }
+                rowStart = pos;
+                rows++;
+
+                line.setLength(0);
+                for (int i = 0; i < machines.length; i++) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    line.append(machines[i].evaluate(frame));
+                }
+                line.append('\n');
+                write(line, output, out);
+            }
+            if (rowStart == 0 && !lastWindow) {
+                throw new IllegalArgumentException("Row " + (rows + 2) + " is longer than "
+                    + windowSize + " bytes");
+            }
+            position += lastWindow ? limit : rowStart;
+        }
+
+        output.flip();
+        while (output.hasRemaining()) {
+            out.write(output);
+        }
+        return rows;
+    }
+
+    private void map(FileChannel in, long position, long size) throws IOException {
+        MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position,
+            Math.min(windowSize, size - position));
+        input = window;
+        pos = 0;
+        limit = window.limit();
+        lastWindow = position + limit >= size;
+    }
+
+    private String[] readHeader() {
+        int end = pos;
+        while (end < limit && input.get(end) != '\n') {
+            end++;
+        }
+        if (end == limit && !lastWindow) {
+            throw new IllegalArgumentException("Header is longer than " + windowSize + " bytes");
+        }
+        byte[] bytes = new byte[end - pos];
+        input.get(pos, bytes);
+        pos = Math.min(end + 1, limit);
+
+        String header = new String(bytes, StandardCharsets.UTF_8).trim();
+        if (header.isEmpty()) {
+            throw new IllegalArgumentException("Missing header line");
+        }
+        List<String> columns = new ArrayList<>();
+        for (String column : header.split(",", -1)) {
+            columns.add(column.trim());
+        }
+        return columns.toArray(new String[0]);
+    }
+
+    /**
+     * Skips an empty line at the cursor. A lone carriage return at the end of
+     * the file also counts as an empty line.
+     *
+     * @return true if a line was skipped
+     */
+    private boolean skipBlankLine() {
+        int p = pos;
+        if (input.get(p) == '\r') {
+            p++;
+            if (p == limit) {
+                if (lastWindow) {
+                    pos = p;
+                }
+                return lastWindow;
+            }
+        }
+        if (input.get(p) == '\n') {
+            pos = p + 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parses one row into the frame.
+     *
+     * @param frame the frame to fill, one slot per column
+     * @param row the line number of the row, for error messages
+     * @return false if the row runs past the end of the window and must be re-read from the next one
+     */
+    private boolean readRow(double[] frame, long row) {
+        if (input.get(pos) == '\r' && pos + 1 == limit) {
+            // The line ending is split across windows
+            return false;
+        }
+        for (int column = 0; column < frame.length; column++) {
+            if (pos >= limit) {
+                if (lastWindow) {
+                    throw new IllegalArgumentException("Row " + row + " has " + column
+                        + " fields but " + frame.length + " are required");
+                }
+                return false;
+            }
+            frame[column] = parseField(row, column + 1);
+            if (pos >= limit && !lastWindow) {
+                return false;
+            }
+            if (pos < limit) {
+                byte b = input.get(pos);
+                if (b == ',') {
+                    if (column == frame.length - 1) {
+                        throw new IllegalArgumentException("Row " + row + " has more than "
+                            + frame.length + " fields");
+                    }
+                    pos++;
+                } else if (column < frame.length - 1) {
+                    throw new IllegalArgumentException("Row " + row + " has " + (column + 1)
+                        + " fields but " + frame.length + " are required");
+                }
+            }
+        }
+        if (pos < limit && input.get(pos) == '\r') {
+            pos++;
+        }
+        if (pos < limit) {
+            pos++;
+            return true;
+        }
+        return lastWindow;
+    }
+
+    /**
+     * Parses the number starting at the cursor and leaves the cursor on the
+     * delimiter that follows it. Plain decimals that fit in a double exactly
+     * are assembled directly; anything else is handed to Double.parseDouble.
+     * A field cut off by the end of a window that is not the last is not
+     * parsed at all, since its row will be read again from the next window.
+     */
+    private double parseField(long row, int column) {
+        while (pos < limit && input.get(pos) == ' ') {
+            pos++;
+        }
+        int start = pos;
+        boolean negative = false;
+        if (pos < limit && (input.get(pos) == '-' || input.get(pos) == '+')) {
+            negative = input.get(pos) == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        while (pos < limit) {
+            byte b = input.get(pos);
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    digits++;
+                }
+                if (digits <= MAX_EXACT_DIGITS) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (seenPoint) {
+                        scale--;
+                    }
+                } else if (!seenPoint) {
+                    scale++;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+            pos++;
+        }
+        int exponent = 0;
+        boolean exact = seenDigit && digits <= MAX_EXACT_DIGITS;
+        if (exact && pos < limit && (input.get(pos) == 'e' || input.get(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < limit && (input.get(pos) == '-' || input.get(pos) == '+')) {
+                negativeExponent = input.get(pos) == '-';
+                pos++;
+            }
+            int exponentStart = pos;
+            while (pos < limit && input.get(pos) >= '0' && input.get(pos) <= '9' && exponent < 1000) {
+                exponent = exponent * 10 + (input.get(pos) - '0');
+                pos++;
+            }
+            exact = pos > exponentStart;
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        int end = pos;
+        while (pos < limit && input.get(pos) == ' ') {
+            pos++;
+        }
+        if (exact && isDelimiter()) {
+            int power = scale + exponent;
+            double value = mantissa;
+            if (power >= 0 && power < POWERS_OF_TEN.length) {
+                value *= POWERS_OF_TEN[power];
+                return negative ? -value : value;
+            } else if (power < 0 && -power < POWERS_OF_TEN.length) {
+                value /= POWERS_OF_TEN[-power];
+                return negative ? -value : value;
+            }
+        }
+        pos = end;
+        while (pos < limit && !isDelimiter()) {
+            pos++;
+        }
+        if (pos >= limit && !lastWindow) {
+            return Double.NaN;
+        }
+        return parseSlow(start, pos, row, column);
+    }
+
+    private boolean isDelimiter() {
+        if (pos >= limit) {
+            return true;
+        }
+        byte b = input.get(pos);
+        return b == ',' || b == '\n' || b == '\r';
+    }
+
+    private double parseSlow(int start, int end, long row, int column) {
+        int length = end - start;
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        input.get(start, bytes, 0, length);
+        try {
+            return Double.parseDouble(new String(bytes, 0, length, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed number in row " + row + ", column " + column);
+        }
+    }
+
+    private static void write(StringBuilder line, ByteBuffer output, FileChannel out) throws IOException {
+        if (output.remaining() < line.length()) {
+            output.flip();
+            while (output.hasRemaining()) {
+                out.write(output);
+            }
+            output.clear();
+        }
+        if (line.length() > output.capacity()) {
+            out.write(ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8)));
+            return;
+        }
+        for (int i = 0; i < line.length(); i++) {
+            output.put((byte) line.charAt(i));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.JMoolman997.calculator.core;
+
+/**
+ * Evaluates an expression DAG, computing every distinct node once.
+ * The DAG (usually produced by {@link NodeInterner}) is flattened into a
+ * topologically ordered list of nodes whose operands are indexes of earlier
+ * nodes. Evaluation fills one preallocated value per node in that order, so a
+ * subtree shared by several parents is computed a single time. An evaluator
+ * is not thread-safe.
+ */
+class DagEvaluator {
+    private final int[] opcodes;
+    private final int[] left;
+    private final int[] right;
+    private final double[] constants;
+    private final double[] values;
+    private final VariableLayout layout;
+
+    /**
+     * Flattens a DAG for evaluation.
+     *
+     * @param dag the root of the DAG
+     * @param layout the frame layout to resolve variables against
+     * @throws RuntimeException if the DAG uses an unknown operator, function or variable
+     */
+    DagEvaluator(ASTNode dag, VariableLayout layout) {
+        this.layout = layout;
+        NodeSchedule schedule = NodeSchedule.of(dag, layout);
+        opcodes = schedule.opcodes;
+        left = schedule.left;
+        right = schedule.right;
+        constants = schedule.constants;
+        values = new double[schedule.length()];
+    }
+
+    /**
+     * Evaluates the DAG.
+     *
+     * @param frame the variable values, indexed by slot
+     * @return the value of the root node
+     */
+    double evaluate(double[] frame) {
+        final double[] values = this.values;
+        for (int i = 0; i < opcodes.length; i++) {
+            int opcode = opcodes[i];
+            switch (opcode) {
+                case Opcodes.CONST:
+                    values[i] = constants[i];
+                    break;
+                case Opcodes.LOAD:
+                    values[i] = frame[left[i]];
+                    break;
+                case Opcodes.ADD:
+                    values[i] = values[left[i]] + values[right[i]];
+                    break;
+                case Opcodes.SUB:
+                    values[i] = values[left[i]] - values[right[i]];
+                    break;
+                case Opcodes.MUL:
+                    values[i] = values[left[i]] * values[right[i]];
+                    break;
+                case Opcodes.DIV:
+                    values[i] = values[left[i]] / values[right[i]];
+                    break;
+                case Opcodes.POW:
+                    values[i] = Math.pow(values[left[i]], values[right[i]]);
+                    break;
+                default:
+                    values[i] = Opcodes.apply(opcode, values[left[i]]);
+                    break;
+            }
+        }
+        return values[opcodes.length - 1];
+    }
+
+    /**
+     * @return the number of distinct nodes computed per evaluation
+     */
+    int nodeCount() {
+        return opcodes.length;
+    }
+
+    /**
+     * @return the layout of the frames this evaluator reads
+     */
+    VariableLayout layout() {
+        return layout;
+    }
+}
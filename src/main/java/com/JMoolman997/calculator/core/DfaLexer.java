@@ -0,0 +1,212 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single-pass, table-driven lexer.
+ * Each character is mapped to a character class and fed through a small
+ * deterministic automaton, so every character is inspected exactly once and
+ * no intermediate strings are built. It produces the same tokens as
+ * {@link SimpleLexer} for valid input, except that whitespace always ends a
+ * token instead of being silently skipped inside one.
+ */
+public class DfaLexer implements Lexer {
+    // Character classes
+    private static final int OTHER = 0;
+    private static final int SPACE = 1;
+    private static final int DIGIT = 2;
+    private static final int LETTER = 3;
+    private static final int DOT = 4;
+    private static final int OPERATOR = 5;
+    private static final int LPAREN = 6;
+    private static final int RPAREN = 7;
+    private static final int CLASS_COUNT = 8;
+
+    // Automaton states
+    private static final int STOP = -1;
+    private static final int START = 0;
+    private static final int IN_SPACE = 1;
+    private static final int IN_INTEGER = 2;
+    private static final int IN_POINT = 3;
+    private static final int IN_FRACTION = 4;
+    private static final int IN_IDENTIFIER = 5;
+    private static final int IN_OPERATOR = 6;
+    private static final int IN_LPAREN = 7;
+    private static final int IN_RPAREN = 8;
+    private static final int STATE_COUNT = 9;
+
+    private static final byte[] CHAR_CLASSES = new byte[128];
+    private static final int[][] TRANSITIONS = new int[STATE_COUNT][CLASS_COUNT];
+
+    // Single character tokens carry no state beyond their text, so one instance is shared
+    private static final Token[] OPERATOR_TOKENS = new Token[128];
+    private static final Token LPAREN_TOKEN = new ParenToken("(");
+    private static final Token RPAREN_TOKEN = new ParenToken(")");
+    private static final Token EOF_TOKEN = new EOFToken();
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            if (Character.isWhitespace(c)) {
+                CHAR_CLASSES[c] = SPACE;
+            } else if (c >= '0' && c <= '9') {
+                CHAR_CLASSES[c] = DIGIT;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_') {
+                CHAR_CLASSES[c] = LETTER;
+            }
+        }
+        CHAR_CLASSES['.'] = DOT;
+        CHAR_CLASSES['('] = LPAREN;
+        CHAR_CLASSES[')'] = RPAREN;
+        for (char c : new char[] {'+', '-', '*', '/', '^'}) {
+            CHAR_CLASSES[c] = OPERATOR;
+            OPERATOR_TOKENS[c] = new OperatorToken(String.valueOf(c));
+        }
+
+        for (int[] row : TRANSITIONS) {
+            Arrays.fill(row, STOP);
+        }
+        TRANSITIONS[START][SPACE] = IN_SPACE;
+        TRANSITIONS[START][DIGIT] = IN_INTEGER;
+        TRANSITIONS[START][LETTER] = IN_IDENTIFIER;
+        TRANSITIONS[START][OPERATOR] = IN_OPERATOR;
+        TRANSITIONS[START][LPAREN] = IN_LPAREN;
+        TRANSITIONS[START][RPAREN] = IN_RPAREN;
+        TRANSITIONS[IN_SPACE][SPACE] = IN_SPACE;
+        TRANSITIONS[IN_INTEGER][DIGIT] = IN_INTEGER;
+        TRANSITIONS[IN_INTEGER][DOT] = IN_POINT;
+        TRANSITIONS[IN_POINT][DIGIT] = IN_FRACTION;
+        TRANSITIONS[IN_FRACTION][DIGIT] = IN_FRACTION;
+        TRANSITIONS[IN_IDENTIFIER][LETTER] = IN_IDENTIFIER;
+        TRANSITIONS[IN_IDENTIFIER][DIGIT] = IN_IDENTIFIER;
+    }
+
+    private final String input;
+    private int pos;
+    private int tokenStart;
+
+    /**
+     * Constructs a DfaLexer with the specified input string.
+     *
+     * @param input the input string to tokenize
+     */
+    DfaLexer(String input) {
+        this(input, 0);
+    }
+
+    /**
+     * Constructs a DfaLexer that starts scanning part way through its input.
+     * The position must be the start of a token or lie in whitespace
+     * between tokens.
+     *
+     * @param input the input string to tokenize
+     * @param pos the offset to start scanning from
+     */
+    DfaLexer(String input, int pos) {
+        this.input = input;
+        this.pos = pos;
+    }
+
+    /**
+     * Tokenizes the input string and returns a list of tokens.
+     *
+     * @return a list of tokens representing the input string
+     * @throws RuntimeException if an unexpected character is encountered
+     */
+    @Override
+    public List<Token> tokenize() {
+        long start = EngineMetrics.start();
+        List<Token> tokens = scan();
+        EngineMetrics.LEX.record(start);
+        return tokens;
+    }
+
+    private List<Token> scan() {
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = next();
+            tokens.add(token);
+        } while (token != EOF_TOKEN);
+        return tokens;
+    }
+
+    /**
+     * Scans the next token, skipping any whitespace before it.
+     *
+     * @return the token, or an EOF token at the end of the input
+     * @throws RuntimeException if an unexpected character is encountered
+     */
+    Token next() {
+        int length = input.length();
+        while (pos < length) {
+            int start = pos;
+            int state = START;
+            while (pos < length) {
+                int next = TRANSITIONS[state][classOf(input.charAt(pos))];
+                if (next == STOP) {
+                    break;
+                }
+                state = next;
+                pos++;
+            }
+
+            // A trailing point is not part of the number, leave it for the next token
+            if (state == IN_POINT) {
+                pos--;
+                state = IN_INTEGER;
+            }
+
+            tokenStart = start;
+            switch (state) {
+                case START:
+                    throw new RuntimeException("Unexpected character: " + input.charAt(pos));
+                case IN_SPACE:
+                    break;
+                case IN_INTEGER:
+                case IN_FRACTION:
+                    return new NumberToken(input.substring(start, pos));
+                case IN_IDENTIFIER:
+                    return new IdentifierToken(input.substring(start, pos));
+                case IN_OPERATOR:
+                    return OPERATOR_TOKENS[input.charAt(start)];
+                case IN_LPAREN:
+                    return LPAREN_TOKEN;
+                case IN_RPAREN:
+                    return RPAREN_TOKEN;
+                default:
+                    throw new IllegalStateException("Unhandled lexer state: " + state);
+            }
+        }
+        tokenStart = length;
+        return EOF_TOKEN;
+    }
+
+    /**
+     * @return the offset of the first character of the token last returned by {@link #next()}
+     */
+    int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * @return the offset just past the token last returned by {@link #next()}
+     */
+    int position() {
+        return pos;
+    }
+
+    /**
+     * Maps a character to its character class.
+     *
+     * @param c the character to classify
+     * @return the character class of c
+     */
+    private static int classOf(char c) {
+        if (c < 128) {
+            return CHAR_CLASSES[c];
+        }
+        return Character.isWhitespace(c) ? SPACE : OTHER;
+    }
+}
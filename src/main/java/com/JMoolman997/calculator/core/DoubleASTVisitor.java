@@ -0,0 +1,14 @@
+package com.JMoolman997.calculator.core;
+
+/**
+ * A visitor over AST nodes whose operations return a primitive double.
+ * Unlike {@code ASTVisitor<Double>}, results are never boxed.
+ */
+public interface DoubleASTVisitor {
+    double visitNumberNode(NumberNode node);
+    double visitVariableNode(VariableNode node);
+    double visitBinaryOpNode(BinaryOpNode node);
+    double visitUnaryOpNode(UnaryOpNode node);
+    double visitFunctionNode(FunctionNode node);
+
+}
@@ -0,0 +1,115 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Evaluates an AST to a primitive double.
+ * It follows the same rules as {@link Evaluator} but never boxes an
+ * intermediate result and builds no argument lists, so walking a tree
+ * allocates nothing. Named variables are kept unboxed in parallel arrays,
+ * so changing the value of a variable that is already set allocates
+ * nothing either.
+ */
+class DoubleEvaluator implements DoubleASTVisitor {
+    private String[] names = new String[4];
+    private double[] values = new double[4];
+    private int count;
+    private double[] frame;
+    private int calls;
+
+    /**
+     * Evaluates a bound expression, reading its variables from a frame.
+     *
+     * @param expression the expression to evaluate
+     * @param frame the variable values, indexed by slot
+     * @return the value of the expression
+     * @throws IllegalArgumentException if the frame is smaller than the expression's layout
+     */
+    double evaluate(BoundExpression expression, double[] frame) {
+        if (frame.length < expression.layout().size()) {
+            throw new IllegalArgumentException("Frame has " + frame.length + " slots but "
+                + expression.layout().size() + " are required");
+        }
+        this.frame = frame;
+        try {
+            if (EngineMetrics.ENABLED && EngineMetrics.sampled(++calls)) {
+                long start = System.nanoTime();
+                double value = expression.root().acceptDouble(this);
+                EngineMetrics.EVALUATE.recordSample(start);
+                return value;
+            }
+            return expression.root().acceptDouble(this);
+        } finally {
+            this.frame = null;
+        }
+    }
+
+    @Override
+    public double visitNumberNode(NumberNode node) {
+        return node.value;
+    }
+
+    @Override
+    public double visitVariableNode(VariableNode node) {
+        if (node.slot >= 0 && frame != null) {
+            return frame[node.slot];
+        }
+        int index = indexOf(node.name);
+        if (index < 0) {
+            throw new RuntimeException("Undefined variable: " + node.name);
+        }
+        return values[index];
+    }
+
+    @Override
+    public double visitBinaryOpNode(BinaryOpNode node) {
+        int opcode = Opcodes.binary(node);
+        List<ASTNode> children = node.getChildren();
+        double leftValue = children.get(0).acceptDouble(this);
+        double rightValue = children.get(1).acceptDouble(this);
+        return Opcodes.apply(opcode, leftValue, rightValue);
+    }
+
+    @Override
+    public double visitUnaryOpNode(UnaryOpNode node) {
+        int opcode = Opcodes.unary(node);
+        return Opcodes.apply(opcode, node.getChildren().get(0).acceptDouble(this));
+    }
+
+    @Override
+    public double visitFunctionNode(FunctionNode node) {
+        int opcode = Opcodes.function(node);
+        List<ASTNode> arguments = node.getChildren();
+        double first = arguments.get(0).acceptDouble(this);
+        if (arguments.size() == 2) {
+            return Opcodes.apply(opcode, first, arguments.get(1).acceptDouble(this));
+        }
+        return Opcodes.apply(opcode, first);
+    }
+
+    public void setVariable(String name, double value) {
+        int index = indexOf(name);
+        if (index < 0) {
+            if (count == names.length) {
+                names = Arrays.copyOf(names, 2 * count);
+                values = Arrays.copyOf(values, 2 * count);
+            }
+            index = count++;
+            names[index] = name;
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Finds a named variable. Expressions use few variables, so a linear scan beats hashing.
+     */
+    private int indexOf(String name) {
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,211 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Evaluates an expression and its derivative in a single pass (forward-mode
+ * automatic differentiation). Every node yields a dual number: its value and
+ * its derivative with respect to one chosen variable. The pair is kept in two
+ * primitive registers rather than returned, so nothing is boxed or allocated
+ * per node. Named variables are kept unboxed in parallel arrays, as in
+ * {@link DoubleEvaluator}. Derivatives are exact up to rounding, unlike
+ * finite differences.
+ */
+class DualEvaluator implements ASTVisitor<Void> {
+    private final String variable;
+    private String[] names = new String[4];
+    private double[] namedValues = new double[4];
+    private int count;
+    private double[] frame;
+
+    // Result registers of the most recently visited node
+    private double value;
+    private double derivative;
+
+    /**
+     * Constructs a DualEvaluator that differentiates with respect to the given variable.
+     *
+     * @param variable the name of the variable to differentiate with respect to
+     */
+    DualEvaluator(String variable) {
+        this.variable = variable;
+    }
+
+    /**
+     * Evaluates a tree and its derivative. Use {@link #derivative()} to read the slope.
+     *
+     * @param ast the root of the tree to evaluate
+     * @return the value of the expression
+     */
+    double evaluate(ASTNode ast) {
+        ast.accept(this);
+        return value;
+    }
+
+    /**
+     * Evaluates a bound expression and its derivative at every point.
+     *
+     * @param expression the expression to evaluate
+     * @param columns the variable values, one column per layout slot
+     * @param values receives the value at each point; its length is the number of points
+     * @param slopes receives the derivative at each point
+     * @throws IllegalArgumentException if there are too few columns or a column is too short
+     */
+    void evaluate(BoundExpression expression, double[][] columns, double[] values, double[] slopes) {
+        VariableLayout layout = expression.layout();
+        BatchEvaluator.checkColumns(layout, columns, values.length);
+        if (slopes.length < values.length) {
+            throw new IllegalArgumentException("Expected " + values.length + " slopes but got " + slopes.length);
+        }
+
+        frame = layout.newFrame();
+        try {
+            for (int i = 0; i < values.length; i++) {
+                for (int slot = 0; slot < frame.length; slot++) {
+                    frame[slot] = columns[slot][i];
+                }
+                expression.root().accept(this);
+                values[i] = value;
+                slopes[i] = derivative;
+            }
+        } finally {
+            frame = null;
+        }
+    }
+
+    /**
+     * @return the value computed by the last evaluation
+     */
+    double value() {
+        return value;
+    }
+
+    /**
+     * @return the derivative computed by the last evaluation
+     */
+    double derivative() {
+        return derivative;
+    }
+
+    public void setVariable(String name, double value) {
+        int index = indexOf(name);
+        if (index < 0) {
+            if (count == names.length) {
+                names = Arrays.copyOf(names, 2 * count);
+                namedValues = Arrays.copyOf(namedValues, 2 * count);
+            }
+            index = count++;
+            names[index] = name;
+        }
+        namedValues[index] = value;
+    }
+
+    /**
+     * Finds a named variable. Expressions use few variables, so a linear scan beats hashing.
+     */
+    private int indexOf(String name) {
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Void visitNumberNode(NumberNode node) {
+        value = node.value;
+        derivative = 0;
+        return null;
+    }
+
+    @Override
+    public Void visitVariableNode(VariableNode node) {
+        if (node.slot >= 0 && frame != null) {
+            value = frame[node.slot];
+        } else {
+            int index = indexOf(node.name);
+            if (index < 0) {
+                throw new RuntimeException("Undefined variable: " + node.name);
+            }
+            value = namedValues[index];
+        }
+        derivative = node.name.equals(variable) ? 1 : 0;
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryOpNode(BinaryOpNode node) {
+        List<ASTNode> children = node.getChildren();
+        binary(Opcodes.binary(node), children.get(0), children.get(1));
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryOpNode(UnaryOpNode node) {
+        Opcodes.unary(node);
+        node.getChildren().get(0).accept(this);
+        value = -value;
+        derivative = -derivative;
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionNode(FunctionNode node) {
+        List<ASTNode> arguments = node.getChildren();
+        int opcode = Opcodes.function(node);
+        if (opcode == Opcodes.POW) {
+            binary(opcode, arguments.get(0), arguments.get(1));
+            return null;
+        }
+
+        arguments.get(0).accept(this);
+        double u = value;
+        value = Opcodes.apply(opcode, u);
+        derivative = Opcodes.derivative(opcode, u) * derivative;
+        return null;
+    }
+
+    /**
+     * Evaluates a binary operator applied to two subtrees.
+     */
+    private void binary(int opcode, ASTNode leftNode, ASTNode rightNode) {
+        leftNode.accept(this);
+        double u = value;
+        double du = derivative;
+        rightNode.accept(this);
+        double v = value;
+        double dv = derivative;
+
+        switch (opcode) {
+            case Opcodes.ADD:
+                value = u + v;
+                derivative = du + dv;
+                break;
+            case Opcodes.SUB:
+                value = u - v;
+                derivative = du - dv;
+                break;
+            case Opcodes.MUL:
+                value = u * v;
+                derivative = du * v + u * dv;
+                break;
+            case Opcodes.DIV:
+                value = u / v;
+                derivative = (du - value * dv) / v;
+                break;
+            case Opcodes.POW:
+                value = Math.pow(u, v);
+                if (dv == 0) {
+                    // Constant exponent: the power rule also covers u <= 0
+                    derivative = v == 0 ? 0 : v * Math.pow(u, v - 1) * du;
+                } else {
+                    derivative = value * (dv * Math.log(u) + v * du / u);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Not a binary opcode: " + opcode);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.JMoolman997.calculator.core;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Per-phase timing of the expression pipeline.
+ * Instrumented code brackets its work with {@link #start()} and
+ * {@link PhaseMetrics#record(long)}, and each phase is registered as a
+ * platform MXBean the first time this class is used.
+ * <p>
+ * Metrics are off by default and are turned on by starting the JVM with
+ * {@code -Dcalculator.metrics=true}. The flag is a static final constant, so
+ * when it is off the JIT removes the timing calls altogether and nothing is
+ * registered. Even when it is on, the evaluation of a single point is too
+ * short to time every call: those hot paths time one call in
+ * {@link #SAMPLE_INTERVAL} and record it for the whole interval.
+ */
+final class EngineMetrics {
+    static final boolean ENABLED = Boolean.getBoolean("calculator.metrics");
+
+    // A power of two, so that sampling is a mask test
+    static final int SAMPLE_INTERVAL = 64;
+
+    static final PhaseMetrics LEX = new PhaseMetrics("lex");
+    static final PhaseMetrics PARSE = new PhaseMetrics("parse");
+    // One expression evaluated at one point
+    static final PhaseMetrics EVALUATE = new PhaseMetrics("evaluate");
+    // One expression evaluated over a range of points
+    static final PhaseMetrics BATCH = new PhaseMetrics("batch");
+
+    static final String DOMAIN = "com.JMoolman997.calculator";
+
+    static {
+        if (ENABLED) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (PhaseMetrics phase : new PhaseMetrics[] {LEX, PARSE, EVALUATE, BATCH}) {
+                try {
+                    ObjectName name = objectName(phase.name());
+                    if (!server.isRegistered(name)) {
+                        server.registerMBean(phase, name);
+                    }
+                } catch (JMException e) {
+                    // Metrics are diagnostic only; failing to publish them must not break evaluation
+                }
+            }
+        }
+    }
+
+    private EngineMetrics() {
+    }
+
+    /**
+     * @return the start time to pass to {@link PhaseMetrics#record(long)}, or 0 if metrics are off
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Decides whether a call on a sampled hot path should be timed.
+     *
+     * @param calls the number of calls the caller has made so far, including this one
+     * @return true for one call in every {@link #SAMPLE_INTERVAL}
+     */
+    static boolean sampled(int calls) {
+        return (calls & (SAMPLE_INTERVAL - 1)) == 0;
+    }
+
+    static ObjectName objectName(String phase) throws JMException {
+        return new ObjectName(DOMAIN + ":type=EngineMetrics,phase=" + phase);
+    }
+}
@@ -0,0 +1,483 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A set of user definitions, such as {@code a = 2*b} or {@code f(x) = x^2 + a},
+ * kept up to date as a dependency graph.
+ * <p>
+ * Each definition depends on the variables and user functions its body
+ * uses. When one is defined, changed or removed, only the definitions that
+ * depend on it, directly or transitively, are recomputed. They are
+ * recomputed in topological order, and each one starts as soon as its own
+ * inputs are ready, so independent branches of the graph run in parallel.
+ * A definition that would make the graph cyclic is rejected, leaving the
+ * environment as it was. A definition that refers to something undefined
+ * keeps the error as its value until the missing name is defined.
+ * <p>
+ * Listeners are told which names changed after every update. They are
+ * called on the thread that made the change.
+ */
+public class Environment {
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+    private static final Pattern DEFINITION = Pattern.compile(
+        "\\s*([a-zA-Z_][a-zA-Z0-9_]*)\\s*(?:\\(\\s*([a-zA-Z_][a-zA-Z0-9_]*)\\s*\\))?\\s*=(.*)", Pattern.DOTALL);
+
+    private final ExecutorService executor;
+    private final Map<String, Definition> definitions = new LinkedHashMap<>();
+    // Reverse edges of the graph; keys may name things that are not defined yet
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Receives the names whose values or definitions changed.
+     */
+    public interface Listener {
+        /**
+         * @param names the changed names in topological order, starting with the one that was edited
+         */
+        void environmentChanged(List<String> names);
+    }
+
+    /**
+     * Constructs an empty Environment that recomputes on the common fork-join pool.
+     */
+    public Environment() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an empty Environment.
+     *
+     * @param executor runs the recomputation of independent definitions in parallel
+     */
+    public Environment(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Adds or replaces a definition, written as {@code name = expression}
+     * or {@code name(parameter) = expression}.
+     *
+     * @param definition the definition
+     * @return the names that were recomputed, in topological order
+     * @throws IllegalArgumentException if the definition is malformed, redefines a built-in name,
+     *         or would make the definitions circular
+     * @throws RuntimeException if the expression cannot be lexed or parsed
+     */
+    public List<String> define(String definition) {
+        Matcher matcher = DEFINITION.matcher(definition);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Malformed definition: " + definition);
+        }
+        String name = matcher.group(1);
+        String parameter = matcher.group(2);
+        String source = matcher.group(3).trim();
+        checkName(name);
+        if (parameter != null) {
+            checkName(parameter);
+        }
+        ASTNode body = new Parser(new DfaLexer(source).tokenize()).parse();
+        body.freeze();
+        return define(name, parameter, source, body);
+    }
+
+    /**
+     * Defines a variable as a plain number.
+     *
+     * @param name the variable name
+     * @param value the new value
+     * @return the names that were recomputed, in topological order
+     * @throws IllegalArgumentException if the name is malformed or built in
+     */
+    public List<String> set(String name, double value) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Malformed name: " + name);
+        }
+        checkName(name);
+        return define(name, null, Double.toString(value), new NumberNode(value));
+    }
+
+    private List<String> define(String name, String parameter, String source, ASTNode body) {
+        List<String> changed;
+        synchronized (this) {
+            Definition replacement = new Definition(name, parameter, source, body);
+            List<String> cycle = findCycle(name, replacement.dependencies);
+            if (cycle != null) {
+                throw new IllegalArgumentException("Circular definition: " + String.join(" -> ", cycle));
+            }
+            unlink(definitions.put(name, replacement));
+            for (String dependency : replacement.dependencies) {
+                dependents.computeIfAbsent(dependency, key -> new HashSet<>()).add(name);
+            }
+            changed = recompute(name);
+        }
+        fireChanged(changed);
+        return changed;
+    }
+
+    /**
+     * Removes a definition. Anything that depends on it is recomputed and reports it as undefined.
+     *
+     * @param name the name to remove
+     * @return the names that were recomputed, in topological order, or an empty list if nothing was removed
+     */
+    public List<String> remove(String name) {
+        List<String> changed;
+        synchronized (this) {
+            Definition removed = definitions.remove(name);
+            if (removed == null) {
+                return Collections.emptyList();
+            }
+            unlink(removed);
+            changed = recompute(name);
+        }
+        fireChanged(changed);
+        return changed;
+    }
+
+    /**
+     * @param name a defined name
+     * @return the current state of the definition, or null if nothing has that name
+     */
+    public synchronized Binding binding(String name) {
+        Definition definition = definitions.get(name);
+        return definition == null ? null : definition.binding();
+    }
+
+    /**
+     * @return the current state of every definition, in the order they were first defined
+     */
+    public synchronized List<Binding> bindings() {
+        List<Binding> bindings = new ArrayList<>(definitions.size());
+        for (Definition definition : definitions.values()) {
+            bindings.add(definition.binding());
+        }
+        return bindings;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireChanged(List<String> names) {
+        for (Listener listener : listeners) {
+            listener.environmentChanged(names);
+        }
+    }
+
+    private static void checkName(String name) {
+        if (Opcodes.lookupFunction(name) >= 0 || ConstantToken.isConstant(name)) {
+            throw new IllegalArgumentException("Cannot redefine built-in: " + name);
+        }
+    }
+
+    private void unlink(Definition definition) {
+        if (definition == null) {
+            return;
+        }
+        for (String dependency : definition.dependencies) {
+            Set<String> users = dependents.get(dependency);
+            users.remove(definition.name);
+            if (users.isEmpty()) {
+                dependents.remove(dependency);
+            }
+        }
+    }
+
+    /**
+     * Looks for a path from the given dependencies back to a name.
+     *
+     * @return the names along the cycle, starting and ending with the name, or null if there is none
+     */
+    private List<String> findCycle(String name, Set<String> dependencies) {
+        Deque<String> path = new ArrayDeque<>();
+        path.add(name);
+        Set<String> visited = new HashSet<>();
+        for (String dependency : dependencies) {
+            if (reaches(dependency, name, visited, path)) {
+                return new ArrayList<>(path);
+            }
+        }
+        return null;
+    }
+
+    private boolean reaches(String from, String target, Set<String> visited, Deque<String> path) {
+        path.addLast(from);
+        if (from.equals(target)) {
+            return true;
+        }
+        Definition definition = definitions.get(from);
+        if (definition != null && visited.add(from)) {
+            for (String dependency : definition.dependencies) {
+                if (reaches(dependency, target, visited, path)) {
+                    return true;
+                }
+            }
+        }
+        path.removeLast();
+        return false;
+    }
+
+    /**
+     * Recomputes a name and everything that depends on it. Each definition
+     * waits only for those of its inputs that are being recomputed too.
+     */
+    private List<String> recompute(String root) {
+        List<String> order = new ArrayList<>();
+        visitDependents(root, new HashSet<>(), order);
+        Collections.reverse(order);
+
+        Map<String, CompletableFuture<Void>> tasks = new HashMap<>();
+        for (String name : order) {
+            Definition definition = definitions.get(name);
+            if (definition == null) {
+                continue;
+            }
+            List<CompletableFuture<Void>> inputs = new ArrayList<>();
+            for (String dependency : definition.dependencies) {
+                CompletableFuture<Void> input = tasks.get(dependency);
+                if (input != null) {
+                    inputs.add(input);
+                }
+            }
+            CompletableFuture<Void> task = inputs.isEmpty()
+                ? CompletableFuture.runAsync(definition::recompute, executor)
+                : CompletableFuture.allOf(inputs.toArray(new CompletableFuture<?>[0]))
+                    .thenRunAsync(definition::recompute, executor);
+            tasks.put(name, task);
+        }
+        try {
+            CompletableFuture.allOf(tasks.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return order;
+    }
+
+    /**
+     * Appends a name and its transitive dependents in depth-first post-order,
+     * so that the reversed list is a topological order.
+     */
+    private void visitDependents(String name, Set<String> visited, List<String> order) {
+        if (!visited.add(name)) {
+            return;
+        }
+        for (String dependent : dependents.getOrDefault(name, Collections.emptySet())) {
+            visitDependents(dependent, visited, order);
+        }
+        order.add(name);
+    }
+
+    private static void collectDependencies(ASTNode node, String parameter, Set<String> names) {
+        if (node instanceof VariableNode) {
+            String name = ((VariableNode) node).name;
+            if (!name.equals(parameter)) {
+                names.add(name);
+            }
+        } else if (node instanceof FunctionNode && ((FunctionNode) node).opcode < 0) {
+            names.add(((FunctionNode) node).name);
+        }
+        for (ASTNode child : node.getChildren()) {
+            collectDependencies(child, parameter, names);
+        }
+    }
+
+    /**
+     * One definition and, for a variable, its last computed value.
+     */
+    private final class Definition {
+        final String name;
+        // The parameter of a function, or null for a variable
+        final String parameter;
+        final String source;
+        final ASTNode body;
+        final Set<String> dependencies = new LinkedHashSet<>();
+        // Written by the task that recomputes this definition, read by the tasks of its dependents
+        volatile double value = Double.NaN;
+        volatile String error;
+
+        Definition(String name, String parameter, String source, ASTNode body) {
+            this.name = name;
+            this.parameter = parameter;
+            this.source = source;
+            this.body = body;
+            collectDependencies(body, parameter, dependencies);
+        }
+
+        void recompute() {
+            if (parameter != null) {
+                // A function has no value of its own; only its dependents need recomputing
+                return;
+            }
+            long start = EngineMetrics.start();
+            try {
+                value = body.acceptDouble(new Scope(null, 0));
+                error = null;
+                EngineMetrics.EVALUATE.record(start);
+            } catch (RuntimeException e) {
+                value = Double.NaN;
+                error = e.getMessage();
+            }
+        }
+
+        Binding binding() {
+            return new Binding(name, parameter, source, value, error);
+        }
+    }
+
+    /**
+     * Evaluates a definition body, resolving names against the environment
+     * and the parameter of the function being called, if any.
+     */
+    private final class Scope implements DoubleASTVisitor {
+        private final String parameter;
+        private final double argument;
+
+        Scope(String parameter, double argument) {
+            this.parameter = parameter;
+            this.argument = argument;
+        }
+
+        @Override
+        public double visitNumberNode(NumberNode node) {
+            return node.value;
+        }
+
+        @Override
+        public double visitVariableNode(VariableNode node) {
+            if (node.name.equals(parameter)) {
+                return argument;
+            }
+            Definition definition = definitions.get(node.name);
+            if (definition == null || definition.parameter != null) {
+                throw new RuntimeException("Undefined variable: " + node.name);
+            }
+            String error = definition.error;
+            if (error != null) {
+                throw new RuntimeException(error);
+            }
+            return definition.value;
+        }
+
+        @Override
+        public double visitBinaryOpNode(BinaryOpNode node) {
+            int opcode = Opcodes.binary(node);
+            double left = node.getChildren().get(0).acceptDouble(this);
+            double right = node.getChildren().get(1).acceptDouble(this);
+            return Opcodes.apply(opcode, left, right);
+        }
+
+        @Override
+        public double visitUnaryOpNode(UnaryOpNode node) {
+            int opcode = Opcodes.unary(node);
+            return Opcodes.apply(opcode, node.getChildren().get(0).acceptDouble(this));
+        }
+
+        @Override
+        public double visitFunctionNode(FunctionNode node) {
+            List<ASTNode> arguments = node.getChildren();
+            if (node.opcode >= 0) {
+                int opcode = Opcodes.function(node);
+                double first = arguments.get(0).acceptDouble(this);
+                if (arguments.size() == 2) {
+                    return Opcodes.apply(opcode, first, arguments.get(1).acceptDouble(this));
+                }
+                return Opcodes.apply(opcode, first);
+            }
+            Definition function = definitions.get(node.name);
+            if (function == null || function.parameter == null) {
+                throw new RuntimeException("Unknown function: " + node.name);
+            }
+            if (arguments.size() != 1) {
+                throw new IllegalArgumentException(node.name + " function requires 1 argument");
+            }
+            double value = arguments.get(0).acceptDouble(this);
+            return function.body.acceptDouble(new Scope(function.parameter, value));
+        }
+    }
+
+    /**
+     * A snapshot of one definition.
+     */
+    public static final class Binding {
+        private final String name;
+        private final String parameter;
+        private final String source;
+        private final double value;
+        private final String error;
+
+        Binding(String name, String parameter, String source, double value, String error) {
+            this.name = name;
+            this.parameter = parameter;
+            this.source = source;
+            this.value = value;
+            this.error = error;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the parameter of a function, or null for a variable
+         */
+        public String getParameter() {
+            return parameter;
+        }
+
+        /**
+         * @return the expression the name is defined as
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return the value of a variable, or NaN for a function or a variable in error
+         */
+        public double getValue() {
+            return value;
+        }
+
+        /**
+         * @return the reason a variable has no value, or null
+         */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isFunction() {
+            return parameter != null;
+        }
+
+        @Override
+        public String toString() {
+            return (parameter == null ? name : name + "(" + parameter + ")") + " = " + source;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.List;
+
+/**
+ * A compiled expression that can be shared freely between threads.
+ * The source is lexed, parsed, bound and compiled to a postfix program once;
+ * after that the expression holds only immutable state. Every evaluation
+ * reads its variable values from a caller-supplied frame or {@link Context},
+ * and the operand stack it needs belongs to the calling thread, so concurrent
+ * evaluations of one expression never lock or contend with each other.
+ */
+public final class Expression {
+    private final String source;
+    private final BoundExpression bound;
+    private final PostfixProgram program;
+    private final ThreadLocal<StackMachine> machines;
+
+    private Expression(String source, BoundExpression bound) {
+        this.source = source;
+        this.bound = bound;
+        this.program = bound.program();
+        this.machines = ThreadLocal.withInitial(() -> new StackMachine(program));
+    }
+
+    /**
+     * Compiles an expression whose variables are laid out in order of first appearance.
+     *
+     * @param source the expression source text
+     * @return the compiled expression
+     * @throws RuntimeException if the source cannot be lexed or parsed
+     */
+    public static Expression compile(String source) {
+        ASTNode ast = new Parser(new DfaLexer(source).tokenize()).parse();
+        return of(source, ast);
+    }
+
+    /**
+     * Compiles an already parsed tree whose variables are laid out in order of first appearance.
+     *
+     * @param source the source text the tree was parsed from
+     * @param ast the root of the tree
+     * @return the compiled expression
+     */
+    static Expression of(String source, ASTNode ast) {
+        return new Expression(source, VariableBinder.bind(ast));
+    }
+
+    /**
+     * Compiles an expression against a fixed variable layout, so that one
+     * frame can be shared by several expressions over the same variables.
+     *
+     * @param source the expression source text
+     * @param variables the variable names in slot order
+     * @return the compiled expression
+     * @throws RuntimeException if the source cannot be lexed or parsed, or uses a variable not listed
+     */
+    public static Expression compile(String source, String... variables) {
+        ASTNode ast = new Parser(new DfaLexer(source).tokenize()).parse();
+        return new Expression(source, VariableBinder.bind(ast, VariableLayout.of(variables)));
+    }
+
+    /**
+     * @return the source text the expression was compiled from
+     */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * @return the variable names in slot order
+     */
+    public List<String> variables() {
+        return bound.layout().names();
+    }
+
+    /**
+     * @param name a variable name
+     * @return the frame slot of the variable, or -1 if the expression has no such variable
+     */
+    public int slotOf(String name) {
+        return bound.layout().slotOf(name);
+    }
+
+    /**
+     * @return a new zero-filled frame sized for this expression
+     */
+    public double[] newFrame() {
+        return bound.layout().newFrame();
+    }
+
+    /**
+     * @return a new evaluation context for this expression, to be used by one thread at a time
+     */
+    public Context newContext() {
+        return new Context(this);
+    }
+
+    /**
+     * Evaluates the expression on the calling thread's operand stack.
+     *
+     * @param frame the variable values, indexed by slot
+     * @return the value of the expression
+     * @throws IllegalArgumentException if the frame is smaller than the expression's layout
+     */
+    public double evaluate(double[] frame) {
+        checkFrame(frame);
+        return machines.get().evaluate(frame);
+    }
+
+    BoundExpression bound() {
+        return bound;
+    }
+
+    private void checkFrame(double[] frame) {
+        if (frame.length < bound.layout().size()) {
+            throw new IllegalArgumentException("Frame has " + frame.length + " slots but "
+                + bound.layout().size() + " are required");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * The mutable per-caller state for evaluating one {@link Expression}: its
+     * variable values and an operand stack. A context is cheap to create and
+     * is not thread-safe; give each thread its own context and reuse it across
+     * evaluations to avoid allocating anything.
+     */
+    public static final class Context {
+        private final Expression expression;
+        private final double[] frame;
+        private final StackMachine machine;
+
+        private Context(Expression expression) {
+            this.expression = expression;
+            this.frame = expression.newFrame();
+            this.machine = new StackMachine(expression.program);
+        }
+
+        /**
+         * Sets a variable by name.
+         *
+         * @param name the variable name
+         * @param value the new value
+         * @return this context
+         * @throws IllegalArgumentException if the expression has no such variable
+         */
+        public Context set(String name, double value) {
+            int slot = expression.slotOf(name);
+            if (slot < 0) {
+                throw new IllegalArgumentException("Unknown variable: " + name);
+            }
+            frame[slot] = value;
+            return this;
+        }
+
+        /**
+         * Sets a variable by slot, avoiding the name lookup.
+         *
+         * @param slot the variable's slot, see {@link Expression#slotOf(String)}
+         * @param value the new value
+         * @return this context
+         */
+        public Context set(int slot, double value) {
+            frame[slot] = value;
+            return this;
+        }
+
+        /**
+         * @param slot a variable slot
+         * @return the current value of the variable
+         */
+        public double get(int slot) {
+            return frame[slot];
+        }
+
+        /**
+         * @return the value of the expression for the current variable values
+         */
+        public double evaluate() {
+            return machine.evaluate(frame);
+        }
+
+        /**
+         * @return the expression this context evaluates
+         */
+        public Expression expression() {
+            return expression;
+        }
+    }
+}
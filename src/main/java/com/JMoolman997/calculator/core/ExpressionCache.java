@@ -0,0 +1,171 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of parsed expressions keyed by their source text.
+ * Sources are normalized before lookup so that formulas differing only in
+ * surrounding or repeated whitespace share one entry. Cached trees are frozen,
+ * so the same tree can be handed to any number of callers, and repeated
+ * subtrees within a formula are interned into a single shared node. When the
+ * cache is full the least recently used entry is evicted.
+ */
+public class ExpressionCache {
+    private final int maximumSize;
+    private final Map<String, ASTNode> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs an ExpressionCache holding at most the given number of expressions.
+     *
+     * @param maximumSize the maximum number of cached expressions
+     * @throws IllegalArgumentException if maximumSize is not positive
+     */
+    public ExpressionCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<String, ASTNode>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ASTNode> eldest) {
+                if (size() > ExpressionCache.this.maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the parsed tree for the given source, lexing and parsing it only
+     * if it is not already cached.
+     *
+     * @param source the expression source text
+     * @return the frozen syntax tree of the expression
+     * @throws RuntimeException if the source cannot be lexed or parsed
+     */
+    public ASTNode get(String source) {
+        String key = normalize(source);
+        ASTNode tree;
+        synchronized (entries) {
+            tree = entries.get(key);
+        }
+        if (tree != null) {
+            hits.increment();
+            return tree;
+        }
+        misses.increment();
+
+        // Parse outside the lock so that a slow parse does not stall other lookups
+        ASTNode parsed = new NodeInterner().intern(new Parser(new DfaLexer(key).tokenize()).parse());
+        synchronized (entries) {
+            tree = entries.get(key);
+            if (tree == null) {
+                entries.put(key, parsed);
+                tree = parsed;
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Removes every cached expression. The counters are left untouched.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return the number of cached expressions
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the maximum number of cached expressions
+     */
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to lex and parse the source
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of entries evicted to respect the size limit
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Normalizes an expression source for use as a cache key.
+     * Leading and trailing whitespace is dropped and every inner run of
+     * whitespace becomes a single space, which never changes the tokens.
+     *
+     * @param source the expression source text
+     * @return the normalized source text
+     */
+    static String normalize(String source) {
+        if (isNormalized(source)) {
+            return source;
+        }
+        StringBuilder builder = new StringBuilder(source.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = builder.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    builder.append(' ');
+                    pendingSpace = false;
+                }
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Checks whether a source is already in normalized form, so the common
+     * case of a tidy formula needs no copy.
+     *
+     * @param source the expression source text
+     * @return true if normalize would return the source unchanged
+     */
+    private static boolean isNormalized(String source) {
+        int last = source.length() - 1;
+        for (int i = 0; i <= last; i++) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)
+                    && (c != ' ' || i == 0 || i == last || source.charAt(i - 1) == ' ')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,147 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.Arrays;
+
+/**
+ * Computes the gradient of an expression with reverse-mode automatic differentiation.
+ * The expression is recorded once as a tape: one entry per distinct node in
+ * evaluation order, stored as an opcode and operand indexes in primitive
+ * arrays. A forward sweep fills in every entry's value, then a single
+ * backward sweep propagates adjoints from the result to the variables, so
+ * the full gradient costs about as much as two evaluations regardless of how
+ * many variables there are. All buffers are allocated with the tape and
+ * reused by every call. A tape is not thread-safe.
+ */
+class GradientTape {
+    private final VariableLayout layout;
+    private final int[] opcodes;
+    private final int[] left;
+    private final int[] right;
+    private final double[] constants;
+    private final double[] values;
+    private final double[] adjoints;
+
+    /**
+     * Records the tape of an expression.
+     *
+     * @param ast the root of the tree or DAG to record
+     * @param layout the frame layout to resolve variables against
+     * @throws RuntimeException if the tree uses an unknown operator, function or variable
+     */
+    GradientTape(ASTNode ast, VariableLayout layout) {
+        this.layout = layout;
+        NodeSchedule schedule = NodeSchedule.of(ast, layout);
+        opcodes = schedule.opcodes;
+        left = schedule.left;
+        right = schedule.right;
+        constants = schedule.constants;
+        values = new double[schedule.length()];
+        adjoints = new double[schedule.length()];
+    }
+
+    /**
+     * Evaluates the expression without differentiating it.
+     *
+     * @param frame the variable values, indexed by slot
+     * @return the value of the expression
+     */
+    double evaluate(double[] frame) {
+        final double[] values = this.values;
+        for (int i = 0; i < opcodes.length; i++) {
+            int opcode = opcodes[i];
+            switch (opcode) {
+                case Opcodes.CONST:
+                    values[i] = constants[i];
+                    break;
+                case Opcodes.LOAD:
+                    values[i] = frame[left[i]];
+                    break;
+                default:
+                    if (Opcodes.arity(opcode) == 2) {
+                        values[i] = Opcodes.apply(opcode, values[left[i]], values[right[i]]);
+                    } else {
+                        values[i] = Opcodes.apply(opcode, values[left[i]]);
+                    }
+                    break;
+            }
+        }
+        return values[opcodes.length - 1];
+    }
+
+    /**
+     * Evaluates the expression and its gradient with respect to every variable in the layout.
+     *
+     * @param frame the variable values, indexed by slot
+     * @param gradient receives the partial derivative for each slot; earlier contents are overwritten
+     * @return the value of the expression
+     */
+    double gradient(double[] frame, double[] gradient) {
+        double result = evaluate(frame);
+        final double[] values = this.values;
+        final double[] adjoints = this.adjoints;
+
+        Arrays.fill(gradient, 0, layout.size(), 0.0);
+        Arrays.fill(adjoints, 0.0);
+        adjoints[opcodes.length - 1] = 1;
+
+        for (int i = opcodes.length - 1; i >= 0; i--) {
+            double g = adjoints[i];
+            if (g == 0) {
+                continue;
+            }
+            int a = left[i];
+            int b = right[i];
+            switch (opcodes[i]) {
+                case Opcodes.CONST:
+                    break;
+                case Opcodes.LOAD:
+                    gradient[a] += g;
+                    break;
+                case Opcodes.ADD:
+                    adjoints[a] += g;
+                    adjoints[b] += g;
+                    break;
+                case Opcodes.SUB:
+                    adjoints[a] += g;
+                    adjoints[b] -= g;
+                    break;
+                case Opcodes.MUL:
+                    adjoints[a] += g * values[b];
+                    adjoints[b] += g * values[a];
+                    break;
+                case Opcodes.DIV:
+                    adjoints[a] += g / values[b];
+                    adjoints[b] -= g * values[i] / values[b];
+                    break;
+                case Opcodes.POW: {
+                    double u = values[a];
+                    double v = values[b];
+                    adjoints[a] += v == 0 ? 0 : g * v * Math.pow(u, v - 1);
+                    // A constant exponent's adjoint is never read, so log of a negative base is harmless there
+                    if (opcodes[b] != Opcodes.CONST) {
+                        adjoints[b] += g * values[i] * Math.log(u);
+                    }
+                    break;
+                }
+                default:
+                    adjoints[a] += g * Opcodes.derivative(opcodes[i], values[a]);
+                    break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of entries on the tape
+     */
+    int length() {
+        return opcodes.length;
+    }
+
+    /**
+     * @return the layout of the frames and gradients this tape works with
+     */
+    VariableLayout layout() {
+        return layout;
+    }
+}
@@ -0,0 +1,49 @@
+package com.JMoolman997.calculator.core;
+
+/**
+ * An immutable set of line segments approximating the zero set of a
+ * function of two variables, as produced by {@link ImplicitPlotter}. The
+ * segments are unordered and need not join into polylines.
+ */
+public final class ImplicitCurve {
+    // x0, y0, x1, y1 for each segment
+    private final double[] coordinates;
+    private final int segments;
+    private final long evaluations;
+
+    ImplicitCurve(double[] coordinates, int segments, long evaluations) {
+        this.coordinates = coordinates;
+        this.segments = segments;
+        this.evaluations = evaluations;
+    }
+
+    /**
+     * @return the number of segments
+     */
+    public int segmentCount() {
+        return segments;
+    }
+
+    public double startX(int i) {
+        return coordinates[4 * i];
+    }
+
+    public double startY(int i) {
+        return coordinates[4 * i + 1];
+    }
+
+    public double endX(int i) {
+        return coordinates[4 * i + 2];
+    }
+
+    public double endY(int i) {
+        return coordinates[4 * i + 3];
+    }
+
+    /**
+     * @return the number of function evaluations the plot took
+     */
+    public long evaluations() {
+        return evaluations;
+    }
+}
@@ -0,0 +1,355 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Plots the curve f(x, y) = 0 with marching squares.
+ * <p>
+ * The function is first evaluated over a coarse grid into one primitive
+ * field array. The grid rows are split into bands that are evaluated in
+ * parallel with {@link BatchEvaluator}, each band writing only its own rows.
+ * Then, again one task per band, every grid cell whose corners change sign is
+ * subdivided recursively. Each subdivision only recurses into the quarters
+ * that still change sign, and the smallest cells are turned into segments by
+ * marching squares. The fine work therefore grows with the length of the
+ * curve rather than with the area of the grid.
+ * <p>
+ * Saddle cells are resolved with the value at their centre. A cell whose
+ * centre value is far larger than any corner value straddles a pole rather
+ * than a root, as in 1 / x, and produces no segment; so does a cell with an
+ * infinite corner, which cannot be interpolated.
+ */
+public class ImplicitPlotter {
+    // A centre this many times larger than every corner marks a pole, not a root
+    private static final double POLE_FACTOR = 4;
+
+    private final ExecutorService executor;
+    private final ThreadLocal<BatchEvaluator> evaluators = ThreadLocal.withInitial(BatchEvaluator::new);
+
+    /**
+     * Constructs an ImplicitPlotter on the common fork/join pool.
+     */
+    public ImplicitPlotter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an ImplicitPlotter.
+     *
+     * @param executor the executor to run row bands on
+     */
+    public ImplicitPlotter(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Plots f(x, y) = 0 over a rectangle.
+     *
+     * @param function the function; it may use only the two given variables
+     * @param xVariable the name of the horizontal variable
+     * @param yVariable the name of the vertical variable
+     * @param x0 the left edge
+     * @param x1 the right edge
+     * @param y0 the bottom edge
+     * @param y1 the top edge
+     * @param columns the number of coarse grid cells across
+     * @param rows the number of coarse grid cells down
+     * @param depth the number of times a coarse cell with a sign change may be quartered
+     * @param cancelled polled between rows and cells; once it returns true plotting stops
+     * @return the curve, or null if plotting was cancelled
+     * @throws IllegalArgumentException if the rectangle or grid is empty, or the function uses another variable
+     */
+    public ImplicitCurve plot(Expression function, String xVariable, String yVariable,
+                              double x0, double x1, double y0, double y1,
+                              int columns, int rows, int depth, BooleanSupplier cancelled) {
+        if (!(x0 < x1) || !(y0 < y1) || columns <= 0 || rows <= 0 || depth < 0) {
+            throw new IllegalArgumentException("Empty plot: [" + x0 + ", " + x1 + "] x [" + y0 + ", " + y1
+                + "] over " + columns + " x " + rows + " cells, depth " + depth);
+        }
+        int xSlot = function.slotOf(xVariable);
+        int ySlot = function.slotOf(yVariable);
+        int used = (xSlot < 0 ? 0 : 1) + (ySlot < 0 ? 0 : 1);
+        if (function.variables().size() > used) {
+            throw new IllegalArgumentException("Function of " + function.variables()
+                + " cannot be plotted against " + xVariable + " and " + yVariable);
+        }
+
+        Grid grid = new Grid(function, xSlot, ySlot, x0, x1, y0, y1, columns, rows, depth, cancelled);
+        int bands = Math.min(rows, Runtime.getRuntime().availableProcessors() * 4);
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int band = 0; band < bands; band++) {
+            int from = (int) ((long) (rows + 1) * band / bands);
+            int to = (int) ((long) (rows + 1) * (band + 1) / bands);
+            tasks.add(CompletableFuture.runAsync(() -> grid.evaluateRows(from, to), executor));
+        }
+        join(tasks);
+        if (cancelled.getAsBoolean()) {
+            return null;
+        }
+
+        tasks.clear();
+        Segments[] results = new Segments[bands];
+        for (int band = 0; band < bands; band++) {
+            int index = band;
+            int from = (int) ((long) rows * band / bands);
+            int to = (int) ((long) rows * (band + 1) / bands);
+            tasks.add(CompletableFuture.runAsync(() -> results[index] = grid.traceRows(from, to), executor));
+        }
+        join(tasks);
+        if (cancelled.getAsBoolean()) {
+            return null;
+        }
+
+        int total = 0;
+        long evaluations = (long) (rows + 1) * (columns + 1);
+        for (Segments result : results) {
+            total += result.count;
+            evaluations += result.evaluations;
+        }
+        double[] coordinates = new double[4 * total];
+        int offset = 0;
+        for (Segments result : results) {
+            System.arraycopy(result.coordinates, 0, coordinates, offset, 4 * result.count);
+            offset += 4 * result.count;
+        }
+        return new ImplicitCurve(coordinates, total, evaluations);
+    }
+
+    private static void join(List<CompletableFuture<Void>> tasks) {
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The coarse grid and its field of values, shared read-only by the
+     * tracing tasks once every band has been evaluated.
+     */
+    private class Grid {
+        final Expression function;
+        final int xSlot;
+        final int ySlot;
+        final double x0;
+        final double y0;
+        final double cellWidth;
+        final double cellHeight;
+        final int columns;
+        final int rows;
+        final int depth;
+        final BooleanSupplier cancelled;
+        // (rows + 1) x (columns + 1) values, row by row from the bottom
+        final double[] field;
+
+        Grid(Expression function, int xSlot, int ySlot, double x0, double x1, double y0, double y1,
+             int columns, int rows, int depth, BooleanSupplier cancelled) {
+            this.function = function;
+            this.xSlot = xSlot;
+            this.ySlot = ySlot;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.cellWidth = (x1 - x0) / columns;
+            this.cellHeight = (y1 - y0) / rows;
+            this.columns = columns;
+            this.rows = rows;
+            this.depth = depth;
+            this.cancelled = cancelled;
+            this.field = new double[(rows + 1) * (columns + 1)];
+        }
+
+        double x(int column) {
+            return x0 + column * cellWidth;
+        }
+
+        double y(int row) {
+            return y0 + row * cellHeight;
+        }
+
+        /**
+         * Evaluates grid rows [from, to) into the field.
+         */
+        void evaluateRows(int from, int to) {
+            int width = columns + 1;
+            int points = (to - from) * width;
+            double[][] inputs = new double[function.variables().size()][];
+            if (xSlot >= 0) {
+                double[] xs = new double[points];
+                for (int i = 0; i < points; i++) {
+                    xs[i] = x(i % width);
+                }
+                inputs[xSlot] = xs;
+            }
+            if (ySlot >= 0) {
+                double[] ys = new double[points];
+                for (int row = from; row < to; row++) {
+                    Arrays.fill(ys, (row - from) * width, (row - from + 1) * width, y(row));
+                }
+                inputs[ySlot] = ys;
+            }
+            if (cancelled.getAsBoolean()) {
+                return;
+            }
+            double[] out = new double[points];
+            evaluators.get().evaluate(function.bound().program(), inputs, out, 0, points);
+            System.arraycopy(out, 0, field, from * width, points);
+        }
+
+        /**
+         * Traces the cells in rows [from, to).
+         */
+        Segments traceRows(int from, int to) {
+            Segments segments = new Segments(function.newContext(), xSlot, ySlot);
+            int width = columns + 1;
+            for (int row = from; row < to; row++) {
+                if (cancelled.getAsBoolean()) {
+                    break;
+                }
+                for (int column = 0; column < columns; column++) {
+                    int corner = row * width + column;
+                    segments.refine(x(column), y(row), cellWidth, cellHeight,
+                        field[corner], field[corner + 1], field[corner + width + 1], field[corner + width], depth);
+                }
+            }
+            return segments;
+        }
+    }
+
+    /**
+     * A growable list of segments and the evaluator that refines cells into them.
+     */
+    private static final class Segments {
+        final Expression.Context context;
+        final int xSlot;
+        final int ySlot;
+        double[] coordinates = new double[64];
+        int count;
+        long evaluations;
+        // Edge crossings of the cell being marched
+        private final double[] ex = new double[4];
+        private final double[] ey = new double[4];
+        private final boolean[] crossed = new boolean[4];
+
+        Segments(Expression.Context context, int xSlot, int ySlot) {
+            this.context = context;
+            this.xSlot = xSlot;
+            this.ySlot = ySlot;
+        }
+
+        /**
+         * Refines a cell whose corners, counter-clockwise from the bottom left, hold v0 to v3.
+         */
+        void refine(double x, double y, double w, double h,
+                    double v0, double v1, double v2, double v3, int depth) {
+            if (!changesSign(v0, v1, v2, v3)) {
+                return;
+            }
+            double hw = 0.5 * w;
+            double hh = 0.5 * h;
+            double centre = evaluate(x + hw, y + hh);
+            if (depth == 0) {
+                march(x, y, w, h, v0, v1, v2, v3, centre);
+                return;
+            }
+            double bottom = evaluate(x + hw, y);
+            double right = evaluate(x + w, y + hh);
+            double top = evaluate(x + hw, y + h);
+            double left = evaluate(x, y + hh);
+            refine(x, y, hw, hh, v0, bottom, centre, left, depth - 1);
+            refine(x + hw, y, hw, hh, bottom, v1, right, centre, depth - 1);
+            refine(x + hw, y + hh, hw, hh, centre, right, v2, top, depth - 1);
+            refine(x, y + hh, hw, hh, left, centre, top, v3, depth - 1);
+        }
+
+        private static boolean changesSign(double v0, double v1, double v2, double v3) {
+            if (Double.isNaN(v0) || Double.isNaN(v1) || Double.isNaN(v2) || Double.isNaN(v3)) {
+                return false;
+            }
+            boolean positive = v0 > 0;
+            return (v1 > 0) != positive || (v2 > 0) != positive || (v3 > 0) != positive;
+        }
+
+        /**
+         * Emits the segments of one cell. Edges are numbered bottom, right, top, left.
+         */
+        private void march(double x, double y, double w, double h,
+                           double v0, double v1, double v2, double v3, double centre) {
+            double largest = Math.max(Math.max(Math.abs(v0), Math.abs(v1)), Math.max(Math.abs(v2), Math.abs(v3)));
+            if (Double.isInfinite(largest) || !(Math.abs(centre) <= POLE_FACTOR * largest)) {
+                return;
+            }
+            crossed[0] = crossing(v0, v1, x, y, x + w, y, 0);
+            crossed[1] = crossing(v1, v2, x + w, y, x + w, y + h, 1);
+            crossed[2] = crossing(v2, v3, x + w, y + h, x, y + h, 2);
+            crossed[3] = crossing(v3, v0, x, y + h, x, y, 3);
+
+            if (crossed[0] && crossed[1] && crossed[2] && crossed[3]) {
+                // Saddle: the centre decides which corners are cut off
+                if ((centre > 0) == (v0 > 0)) {
+                    add(ex[0], ey[0], ex[1], ey[1]);
+                    add(ex[2], ey[2], ex[3], ey[3]);
+                } else {
+                    add(ex[3], ey[3], ex[0], ey[0]);
+                    add(ex[1], ey[1], ex[2], ey[2]);
+                }
+                return;
+            }
+            int first = -1;
+            for (int edge = 0; edge < 4; edge++) {
+                if (crossed[edge]) {
+                    if (first < 0) {
+                        first = edge;
+                    } else {
+                        add(ex[first], ey[first], ex[edge], ey[edge]);
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Finds where the edge from (xa, ya) to (xb, yb) crosses zero, by linear interpolation.
+         */
+        private boolean crossing(double va, double vb, double xa, double ya, double xb, double yb, int edge) {
+            if ((va > 0) == (vb > 0)) {
+                return false;
+            }
+            double t = va / (va - vb);
+            ex[edge] = xa + t * (xb - xa);
+            ey[edge] = ya + t * (yb - ya);
+            return true;
+        }
+
+        private void add(double xa, double ya, double xb, double yb) {
+            if (4 * count + 4 > coordinates.length) {
+                coordinates = Arrays.copyOf(coordinates, 2 * coordinates.length);
+            }
+            int i = 4 * count++;
+            coordinates[i] = xa;
+            coordinates[i + 1] = ya;
+            coordinates[i + 2] = xb;
+            coordinates[i + 3] = yb;
+        }
+
+        private double evaluate(double x, double y) {
+            evaluations++;
+            if (xSlot >= 0) {
+                context.set(xSlot, x);
+            }
+            if (ySlot >= 0) {
+                context.set(ySlot, y);
+            }
+            return context.evaluate();
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.JMoolman997.calculator.core.Token.TokenType;
+
+/**
+ * Keeps a formula that is being edited lexed and parsed, redoing only the
+ * work an edit invalidates.
+ * <p>
+ * Every token is stored with its source offsets. After an edit the lexer
+ * restarts at the first token the edit can touch and stops as soon as it
+ * reaches the start of an old token past the edit, since everything from
+ * there on lexes exactly as before.
+ * <p>
+ * The parser remembers three kinds of subtree, each by the token it starts
+ * at: every parenthesised group, every term (an operand of a sum or
+ * difference), and, at every + or - operator, the sum to the left of that
+ * operator. Each depends only on the tokens it covers and the token that
+ * ends it, so it is reused, skipping straight over its tokens, for as long
+ * as the edits leave those tokens alone. A sum that encloses the edit
+ * resumes from the last operator before the edit and reuses every untouched
+ * term after it. Typing at the end of a long formula therefore costs a
+ * constant amount of parsing. An edit further back re-reads no unchanged
+ * term, but still builds one new node for each + or - after it, since every
+ * enclosing sum node changes. {@link #compile()} binds and compiles the
+ * whole tree.
+ * <p>
+ * A document may be mid-edit and fail to lex or parse; the error is kept
+ * until a later edit fixes it. This class is not thread-safe.
+ */
+public class IncrementalParser {
+    private String source;
+    // The token stream of the source with the offsets of each token, or null if it does not lex
+    private List<Token> tokens;
+    private int[] starts;
+    private int[] ends;
+    // For the opening parenthesis of a group: the index of its closing parenthesis
+    // and the tree between them, or -1 and null if not parsed yet
+    private int[] closes;
+    private ASTNode[] groups;
+    // For the first token of a term: the index of the token that ends it and its tree
+    private int[] termEnds;
+    private ASTNode[] terms;
+    // For a + or - operator: the sum to its left, the index that sum starts at, and
+    // the previous operator of the same sum; and for the start of a sum, its last operator
+    private ASTNode[] sums;
+    private int[] sumStarts;
+    private int[] previousOperators;
+    private int[] lastOperators;
+    private ASTNode tree;
+    private RuntimeException error;
+
+    private int relexed;
+    private int reused;
+    private int parsed;
+
+    /**
+     * Constructs an IncrementalParser and parses the whole of the given source.
+     *
+     * @param source the initial source text
+     */
+    public IncrementalParser(String source) {
+        reset(source);
+    }
+
+    /**
+     * Replaces part of the source and brings the tokens and tree up to date.
+     *
+     * @param offset the offset of the first character to replace
+     * @param removed the number of characters to replace
+     * @param inserted the text to insert in their place
+     * @throws IndexOutOfBoundsException if the replaced range lies outside the source
+     */
+    public void edit(int offset, int removed, String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > source.length()) {
+            throw new IndexOutOfBoundsException("Edit [" + offset + ", " + (offset + removed)
+                + ") outside source of length " + source.length());
+        }
+        String text = source.substring(0, offset) + inserted + source.substring(offset + removed);
+        if (tokens == null) {
+            // Nothing is known about a source that did not lex
+            reset(text);
+            return;
+        }
+        source = text;
+        long start = EngineMetrics.start();
+        try {
+            relex(offset, removed, inserted.length());
+        } catch (RuntimeException e) {
+            tokens = null;
+            fail(e);
+            return;
+        }
+        EngineMetrics.LEX.record(start);
+        reparse();
+    }
+
+    /**
+     * Brings the parser up to date with a new version of the source. The
+     * edit is taken to be the span between the longest common prefix and
+     * suffix of the old and new text.
+     *
+     * @param text the new source text
+     */
+    public void update(String text) {
+        int oldLength = source.length();
+        int newLength = text.length();
+        int shorter = Math.min(oldLength, newLength);
+        int prefix = 0;
+        while (prefix < shorter && source.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < shorter - prefix
+            && source.charAt(oldLength - 1 - suffix) == text.charAt(newLength - 1 - suffix)) {
+            suffix++;
+        }
+        edit(prefix, oldLength - prefix - suffix, text.substring(prefix, newLength - suffix));
+    }
+
+    /**
+     * @return the current source text
+     */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Compiles the current tree.
+     *
+     * @return the compiled expression
+     * @throws RuntimeException if the current source cannot be lexed or parsed
+     */
+    public Expression compile() {
+        if (error != null) {
+            throw new RuntimeException(error.getMessage(), error);
+        }
+        return Expression.of(source, tree);
+    }
+
+    /**
+     * @return the frozen tree of the current source, or null if it does not parse
+     */
+    ASTNode tree() {
+        return tree;
+    }
+
+    /**
+     * @return the tokens of the current source, or null if it does not lex
+     */
+    List<Token> tokens() {
+        return tokens;
+    }
+
+    /**
+     * @return the number of tokens the last edit had to lex
+     */
+    int relexedCount() {
+        return relexed;
+    }
+
+    /**
+     * @return the number of groups, terms and partial sums the last parse reused
+     */
+    int reusedCount() {
+        return reused;
+    }
+
+    /**
+     * @return the number of tokens the last parse read itself, rather than
+     *         skipped over inside a reused subtree
+     */
+    int parsedCount() {
+        return parsed;
+    }
+
+    private void reset(String text) {
+        source = text;
+        DfaLexer lexer = new DfaLexer(text);
+        List<Token> scanned = new ArrayList<>();
+        List<int[]> spans = new ArrayList<>();
+        long start = EngineMetrics.start();
+        try {
+            Token token;
+            do {
+                token = lexer.next();
+                scanned.add(token);
+                spans.add(new int[] {lexer.tokenStart(), lexer.position()});
+            } while (token.getType() != TokenType.EOF);
+        } catch (RuntimeException e) {
+            tokens = null;
+            fail(e);
+            return;
+        }
+        EngineMetrics.LEX.record(start);
+
+        int count = scanned.size();
+        tokens = scanned;
+        starts = new int[count];
+        ends = new int[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = spans.get(i)[0];
+            ends[i] = spans.get(i)[1];
+        }
+        closes = new int[count];
+        Arrays.fill(closes, -1);
+        groups = new ASTNode[count];
+        termEnds = new int[count];
+        Arrays.fill(termEnds, -1);
+        terms = new ASTNode[count];
+        sums = new ASTNode[count];
+        sumStarts = new int[count];
+        previousOperators = new int[count];
+        lastOperators = new int[count];
+        Arrays.fill(lastOperators, -1);
+        relexed = count;
+        reparse();
+    }
+
+    /**
+     * Re-lexes the damaged part of the token stream and splices it between
+     * the tokens before and after the edit.
+     */
+    private void relex(int offset, int removed, int insertedLength) {
+        int delta = insertedLength - removed;
+        int count = tokens.size();
+        // A token ending where the edit starts may run on into the inserted text
+        int first = firstIndex(ends, offset);
+        // Old tokens starting past the replaced text can be picked up again unchanged
+        int resume = firstIndex(starts, offset + removed);
+
+        DfaLexer lexer = new DfaLexer(source, Math.min(starts[first], offset));
+        List<Token> fresh = new ArrayList<>();
+        List<int[]> spans = new ArrayList<>();
+        while (true) {
+            Token token = lexer.next();
+            int start = lexer.tokenStart();
+            while (starts[resume] + delta < start) {
+                resume++;
+            }
+            // The old end of file always matches, so this loop ends
+            if (starts[resume] + delta == start) {
+                break;
+            }
+            fresh.add(token);
+            spans.add(new int[] {start, lexer.position()});
+        }
+        relexed = fresh.size();
+
+        int added = fresh.size();
+        int shift = added - (resume - first);
+        int newCount = count + shift;
+        List<Token> newTokens = new ArrayList<>(newCount);
+        newTokens.addAll(tokens.subList(0, first));
+        newTokens.addAll(fresh);
+        newTokens.addAll(tokens.subList(resume, count));
+
+        int[] newStarts = new int[newCount];
+        int[] newEnds = new int[newCount];
+        System.arraycopy(starts, 0, newStarts, 0, first);
+        System.arraycopy(ends, 0, newEnds, 0, first);
+        for (int i = 0; i < added; i++) {
+            newStarts[first + i] = spans.get(i)[0];
+            newEnds[first + i] = spans.get(i)[1];
+        }
+        for (int i = resume; i < count; i++) {
+            newStarts[i + shift] = starts[i] + delta;
+            newEnds[i + shift] = ends[i] + delta;
+        }
+
+        int[] newCloses = new int[newCount];
+        ASTNode[] newGroups = new ASTNode[newCount];
+        carry(closes, groups, newCloses, newGroups, first, resume, shift);
+        int[] newTermEnds = new int[newCount];
+        ASTNode[] newTerms = new ASTNode[newCount];
+        carry(termEnds, terms, newTermEnds, newTerms, first, resume, shift);
+        carrySums(newCount, first, resume, shift);
+
+        tokens = newTokens;
+        starts = newStarts;
+        ends = newEnds;
+        closes = newCloses;
+        groups = newGroups;
+        termEnds = newTermEnds;
+        terms = newTerms;
+    }
+
+    /**
+     * Carries a cache of subtrees over an edit. The tree at index i covers
+     * the tokens from i up to last[i], the last token it depends on, and
+     * survives if none of those tokens were re-lexed.
+     */
+    private static void carry(int[] last, ASTNode[] trees, int[] newLast, ASTNode[] newTrees,
+            int first, int resume, int shift) {
+        Arrays.fill(newLast, -1);
+        for (int i = 0; i < first; i++) {
+            // A tree that runs into the edit has to be parsed again
+            if (last[i] >= 0 && last[i] < first) {
+                newLast[i] = last[i];
+                newTrees[i] = trees[i];
+            }
+        }
+        for (int i = resume; i < last.length; i++) {
+            if (last[i] >= 0) {
+                newLast[i + shift] = last[i] + shift;
+                newTrees[i + shift] = trees[i];
+            }
+        }
+    }
+
+    /**
+     * Carries the partial sums over an edit. A partial sum survives if it
+     * lies wholly before the re-lexed tokens or wholly after them. A sum
+     * that encloses the edit falls back to its last operator before it.
+     */
+    private void carrySums(int newCount, int first, int resume, int shift) {
+        ASTNode[] newSums = new ASTNode[newCount];
+        int[] newSumStarts = new int[newCount];
+        int[] newPrevious = new int[newCount];
+        int[] newLast = new int[newCount];
+        Arrays.fill(newLast, -1);
+        for (int i = 0; i < first; i++) {
+            newSums[i] = sums[i];
+            newSumStarts[i] = sumStarts[i];
+            newPrevious[i] = previousOperators[i];
+            int operator = lastOperators[i];
+            while (operator >= first) {
+                operator = previousOperators[operator];
+            }
+            newLast[i] = operator;
+        }
+        for (int i = resume; i < sums.length; i++) {
+            int j = i + shift;
+            if (sums[i] != null && sumStarts[i] >= resume) {
+                newSums[j] = sums[i];
+                newSumStarts[j] = sumStarts[i] + shift;
+                newPrevious[j] = previousOperators[i] < 0 ? -1 : previousOperators[i] + shift;
+            }
+            newLast[j] = lastOperators[i] < 0 ? -1 : lastOperators[i] + shift;
+        }
+        sums = newSums;
+        sumStarts = newSumStarts;
+        previousOperators = newPrevious;
+        lastOperators = newLast;
+    }
+
+    /**
+     * @return the index of the first entry at or above the key in a non-decreasing array
+     */
+    private static int firstIndex(int[] offsets, int key) {
+        int low = 0;
+        int high = offsets.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (offsets[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void reparse() {
+        reused = 0;
+        parsed = tokens.size();
+        try {
+            ASTNode root = new CachingParser().parse();
+            root.freeze();
+            tree = root;
+            error = null;
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(RuntimeException e) {
+        tree = null;
+        error = e;
+    }
+
+    /**
+     * A parser that takes the trees of unchanged groups, terms and partial
+     * sums from the caches instead of parsing their tokens, and caches every
+     * one it does parse.
+     */
+    private final class CachingParser extends Parser {
+        CachingParser() {
+            super(tokens);
+        }
+
+        @Override
+        ASTNode expression() {
+            int start = position();
+            int previous = -1;
+            ASTNode node;
+            int last = lastOperators[start];
+            if (last >= 0 && sums[last] != null && sumStarts[last] == start) {
+                // Everything before the last remembered operator is unchanged
+                reused++;
+                parsed -= last - start;
+                seek(last);
+                node = sums[last];
+                previous = previousOperators[last];
+            } else {
+                node = term();
+            }
+            while (atOperator("+") || atOperator("-")) {
+                int operator = position();
+                // Frozen now, since later trees share it
+                node.freeze();
+                sums[operator] = node;
+                sumStarts[operator] = start;
+                previousOperators[operator] = previous;
+                previous = operator;
+                seek(operator + 1);
+                node = new BinaryOpNode(tokens.get(operator).getValue(), node, term());
+            }
+            lastOperators[start] = previous;
+            return node;
+        }
+
+        @Override
+        ASTNode term() {
+            int start = position();
+            if (termEnds[start] >= 0) {
+                reused++;
+                parsed -= termEnds[start] - start;
+                seek(termEnds[start]);
+                return terms[start];
+            }
+            ASTNode node = super.term();
+            node.freeze();
+            termEnds[start] = position();
+            terms[start] = node;
+            return node;
+        }
+
+        @Override
+        ASTNode group() {
+            int open = position();
+            if (closes[open] >= 0) {
+                reused++;
+                parsed -= closes[open] - open + 1;
+                seek(closes[open] + 1);
+                return groups[open];
+            }
+            ASTNode node = super.group();
+            // Frozen now, since later trees share it
+            node.freeze();
+            closes[open] = position() - 1;
+            groups[open] = node;
+            return node;
+        }
+    }
+}
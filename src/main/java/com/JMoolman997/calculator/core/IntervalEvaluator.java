@@ -0,0 +1,446 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates an expression over intervals. Every variable ranges over
+ * [lo, hi] and every node yields an interval guaranteed to contain the value
+ * of the expression at every point in those ranges, so one evaluation can
+ * prove that a whole region has no root, or lies entirely inside or outside a
+ * plot window.
+ * <p>
+ * Bounds are kept in two primitive registers rather than returned, as in
+ * {@link DualEvaluator}. Each inexact result is widened outward by one ulp,
+ * which covers both IEEE rounding and the one-ulp error bound of the
+ * java.lang.Math functions. Division by an interval containing zero yields
+ * the smallest single interval holding every quotient, which may be
+ * unbounded. Where an expression is undefined over the whole range, such as
+ * sqrt of a negative interval, the result is empty and both bounds are NaN.
+ */
+class IntervalEvaluator implements ASTVisitor<Void> {
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final double HALF_PI = Math.PI / 2;
+
+    private final Map<String, double[]> variables = new HashMap<>();
+    private double[] lows;
+    private double[] highs;
+
+    // Result registers of the most recently visited node
+    private double lo;
+    private double hi;
+
+    /**
+     * Evaluates a tree over the ranges set on this evaluator.
+     * Use {@link #lower()} and {@link #upper()} to read the result.
+     *
+     * @param ast the root of the tree to evaluate
+     * @throws RuntimeException if the tree uses an undefined variable
+     */
+    void evaluate(ASTNode ast) {
+        ast.accept(this);
+    }
+
+    /**
+     * Evaluates a bound expression with each variable ranging over [lows[slot], highs[slot]].
+     *
+     * @param expression the expression to evaluate
+     * @param lows the lower bound of each variable, indexed by slot
+     * @param highs the upper bound of each variable, indexed by slot
+     * @throws IllegalArgumentException if either frame is smaller than the expression's layout
+     */
+    void evaluate(BoundExpression expression, double[] lows, double[] highs) {
+        int required = expression.layout().size();
+        if (lows.length < required || highs.length < required) {
+            throw new IllegalArgumentException("Frame has " + Math.min(lows.length, highs.length)
+                + " slots but " + required + " are required");
+        }
+        this.lows = lows;
+        this.highs = highs;
+        try {
+            expression.root().accept(this);
+        } finally {
+            this.lows = null;
+            this.highs = null;
+        }
+    }
+
+    /**
+     * @return the lower bound computed by the last evaluation, or NaN if the result is empty
+     */
+    double lower() {
+        return lo;
+    }
+
+    /**
+     * @return the upper bound computed by the last evaluation, or NaN if the result is empty
+     */
+    double upper() {
+        return hi;
+    }
+
+    /**
+     * @return true if the expression is undefined everywhere in the last evaluated ranges
+     */
+    boolean isEmpty() {
+        return Double.isNaN(lo);
+    }
+
+    public void setVariable(String name, double value) {
+        setVariable(name, value, value);
+    }
+
+    /**
+     * Lets a variable range over an interval.
+     *
+     * @param name the variable name
+     * @param lo the lower bound
+     * @param hi the upper bound
+     * @throws IllegalArgumentException if lo is greater than hi or either bound is NaN
+     */
+    public void setVariable(String name, double lo, double hi) {
+        if (!(lo <= hi)) {
+            throw new IllegalArgumentException("Invalid interval for " + name + ": [" + lo + ", " + hi + "]");
+        }
+        variables.put(name, new double[] {lo, hi});
+    }
+
+    @Override
+    public Void visitNumberNode(NumberNode node) {
+        lo = node.value;
+        hi = node.value;
+        return null;
+    }
+
+    @Override
+    public Void visitVariableNode(VariableNode node) {
+        if (node.slot >= 0 && lows != null) {
+            lo = lows[node.slot];
+            hi = highs[node.slot];
+            return null;
+        }
+        double[] range = variables.get(node.name);
+        if (range == null) {
+            throw new RuntimeException("Undefined variable: " + node.name);
+        }
+        lo = range[0];
+        hi = range[1];
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryOpNode(BinaryOpNode node) {
+        List<ASTNode> children = node.getChildren();
+        binary(Opcodes.binary(node), children.get(0), children.get(1));
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryOpNode(UnaryOpNode node) {
+        Opcodes.unary(node);
+        node.getChildren().get(0).accept(this);
+        double a = lo;
+        lo = -hi;
+        hi = -a;
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionNode(FunctionNode node) {
+        List<ASTNode> arguments = node.getChildren();
+        int opcode = Opcodes.function(node);
+        if (opcode == Opcodes.POW) {
+            binary(opcode, arguments.get(0), arguments.get(1));
+            return null;
+        }
+        arguments.get(0).accept(this);
+        if (!isEmpty()) {
+            unary(opcode, lo, hi);
+        }
+        return null;
+    }
+
+    /**
+     * Evaluates a binary operator applied to two subtrees.
+     */
+    private void binary(int opcode, ASTNode leftNode, ASTNode rightNode) {
+        leftNode.accept(this);
+        double a = lo;
+        double b = hi;
+        rightNode.accept(this);
+        double c = lo;
+        double d = hi;
+        if (Double.isNaN(a) || Double.isNaN(c)) {
+            setEmpty();
+            return;
+        }
+
+        switch (opcode) {
+            case Opcodes.ADD:
+                setOutward(a + c, b + d);
+                break;
+            case Opcodes.SUB:
+                setOutward(a - d, b - c);
+                break;
+            case Opcodes.MUL:
+                multiply(a, b, c, d);
+                break;
+            case Opcodes.DIV:
+                divide(a, b, c, d);
+                break;
+            case Opcodes.POW:
+                power(a, b, c, d);
+                break;
+            default:
+                throw new IllegalArgumentException("Not a binary opcode: " + opcode);
+        }
+    }
+
+    private void unary(int opcode, double a, double b) {
+        switch (opcode) {
+            case Opcodes.SIN:
+                sine(a, b);
+                break;
+            case Opcodes.COS:
+                cosine(a, b);
+                break;
+            case Opcodes.TAN:
+                tangent(a, b);
+                break;
+            case Opcodes.CSC:
+                sine(a, b);
+                divide(1, 1, lo, hi);
+                break;
+            case Opcodes.SEC:
+                unary(Opcodes.COS, a, b);
+                divide(1, 1, lo, hi);
+                break;
+            case Opcodes.COT:
+                tangent(a, b);
+                if (!isEmpty()) {
+                    divide(1, 1, lo, hi);
+                }
+                break;
+            case Opcodes.ASIN:
+                if (b < -1 || a > 1) {
+                    setEmpty();
+                } else {
+                    setOutward(Math.asin(Math.max(a, -1)), Math.asin(Math.min(b, 1)));
+                }
+                break;
+            case Opcodes.ACOS:
+                if (b < -1 || a > 1) {
+                    setEmpty();
+                } else {
+                    setOutward(Math.acos(Math.min(b, 1)), Math.acos(Math.max(a, -1)));
+                }
+                break;
+            case Opcodes.ATAN:
+                setOutward(Math.atan(a), Math.atan(b));
+                break;
+            case Opcodes.ABS:
+                if (a >= 0) {
+                    lo = a;
+                    hi = b;
+                } else if (b <= 0) {
+                    lo = -b;
+                    hi = -a;
+                } else {
+                    lo = 0;
+                    hi = Math.max(-a, b);
+                }
+                break;
+            case Opcodes.SQRT:
+                if (b < 0) {
+                    setEmpty();
+                } else {
+                    setOutward(Math.sqrt(Math.max(a, 0)), Math.sqrt(b));
+                    lo = Math.max(lo, 0);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Not a unary opcode: " + opcode);
+        }
+    }
+
+    private void multiply(double a, double b, double c, double d) {
+        double p1 = product(a, c);
+        double p2 = product(a, d);
+        double p3 = product(b, c);
+        double p4 = product(b, d);
+        setOutward(Math.min(Math.min(p1, p2), Math.min(p3, p4)), Math.max(Math.max(p1, p2), Math.max(p3, p4)));
+    }
+
+    /**
+     * Multiplies two bounds, taking 0 * infinity as 0 since a zero bound is attained
+     * while an infinite bound is only approached.
+     */
+    private static double product(double x, double y) {
+        return x == 0 || y == 0 ? 0 : x * y;
+    }
+
+    private void divide(double a, double b, double c, double d) {
+        if (Double.isNaN(a) || Double.isNaN(c)) {
+            setEmpty();
+        } else if (c > 0 || d < 0) {
+            double q1 = a / c;
+            double q2 = a / d;
+            double q3 = b / c;
+            double q4 = b / d;
+            setOutward(Math.min(Math.min(q1, q2), Math.min(q3, q4)), Math.max(Math.max(q1, q2), Math.max(q3, q4)));
+        } else if (c == 0 && d == 0) {
+            setEmpty();
+        } else if (a == 0 && b == 0) {
+            lo = 0;
+            hi = 0;
+        } else if (c == 0) {
+            // Divisor [0, d]: the quotients are x / t for t in (0, d]
+            if (a >= 0) {
+                setOutward(a / d, Double.POSITIVE_INFINITY);
+            } else if (b <= 0) {
+                setOutward(Double.NEGATIVE_INFINITY, b / d);
+            } else {
+                setEntire();
+            }
+        } else if (d == 0) {
+            // Divisor [c, 0]: the quotients are x / t for t in [c, 0)
+            if (a >= 0) {
+                setOutward(Double.NEGATIVE_INFINITY, a / c);
+            } else if (b <= 0) {
+                setOutward(b / c, Double.POSITIVE_INFINITY);
+            } else {
+                setEntire();
+            }
+        } else {
+            // Zero is strictly inside the divisor, so the quotients form two
+            // half-lines whose hull is the whole line
+            setEntire();
+        }
+    }
+
+    private void power(double a, double b, double c, double d) {
+        if (c == d && c == Math.rint(c) && Math.abs(c) <= 1L << 53) {
+            integerPower(a, b, c);
+            return;
+        }
+        if (a < 0 && Math.floor(d) >= c) {
+            // A negative base is raised to the integers in [c, d], with either
+            // sign, so bound the magnitude and reflect it
+            positivePower(0, Math.max(-a, b), c, d);
+            lo = -hi;
+            return;
+        }
+        // Otherwise a negative base gives no real value at all
+        if (b < 0) {
+            setEmpty();
+            return;
+        }
+        positivePower(Math.max(a, 0), b, c, d);
+    }
+
+    private void positivePower(double a, double b, double c, double d) {
+        // For x >= 0, x^y is monotone in each argument, so the corners bound it
+        double p1 = Math.pow(a, c);
+        double p2 = Math.pow(a, d);
+        double p3 = Math.pow(b, c);
+        double p4 = Math.pow(b, d);
+        setOutward(Math.min(Math.min(p1, p2), Math.min(p3, p4)), Math.max(Math.max(p1, p2), Math.max(p3, p4)));
+        lo = Math.max(lo, 0);
+    }
+
+    private void integerPower(double a, double b, double n) {
+        if (n == 0) {
+            lo = 1;
+            hi = 1;
+            return;
+        }
+        double m = Math.abs(n);
+        boolean even = m % 2 == 0;
+        if (!even || a >= 0) {
+            setOutward(Math.pow(a, m), Math.pow(b, m));
+        } else if (b <= 0) {
+            setOutward(Math.pow(b, m), Math.pow(a, m));
+        } else {
+            setOutward(0, Math.max(Math.pow(a, m), Math.pow(b, m)));
+        }
+        if (even) {
+            lo = Math.max(lo, 0);
+        }
+        if (n < 0) {
+            divide(1, 1, lo, hi);
+        }
+    }
+
+    private void sine(double a, double b) {
+        // The maxima lie at pi/2 + 2k pi and the minima at -pi/2 + 2k pi
+        wave(a, b, Math.sin(a), Math.sin(b), HALF_PI, -HALF_PI);
+    }
+
+    private void cosine(double a, double b) {
+        // The maxima lie at 2k pi and the minima at pi + 2k pi
+        wave(a, b, Math.cos(a), Math.cos(b), 0, Math.PI);
+    }
+
+    /**
+     * Bounds sin or cos over [a, b] from its values at the ends and the
+     * offsets of its maxima and minima within each period.
+     */
+    private void wave(double a, double b, double fa, double fb, double maximum, double minimum) {
+        if (Double.isInfinite(a) || Double.isInfinite(b) || b - a >= TWO_PI) {
+            lo = -1;
+            hi = 1;
+            return;
+        }
+        setOutward(Math.min(fa, fb), Math.max(fa, fb));
+        if (containsCriticalPoint(a, b, maximum)) {
+            hi = 1;
+        }
+        if (containsCriticalPoint(a, b, minimum)) {
+            lo = -1;
+        }
+        lo = Math.max(lo, -1);
+        hi = Math.min(hi, 1);
+    }
+
+    private void tangent(double a, double b) {
+        if (Double.isInfinite(a) || Double.isInfinite(b) || b - a >= Math.PI
+                || containsCriticalPoint(a, b, HALF_PI) || containsCriticalPoint(a, b, -HALF_PI)) {
+            // The range crosses an asymptote
+            setEntire();
+            return;
+        }
+        setOutward(Math.tan(a), Math.tan(b));
+    }
+
+    /**
+     * Checks whether [a, b] may contain a point offset + 2k pi. The test is
+     * slightly generous near the ends, since pi is not exact; reporting a
+     * point that is just outside only loosens the enclosure.
+     */
+    private static boolean containsCriticalPoint(double a, double b, double offset) {
+        double k = Math.ceil((a - offset) / TWO_PI);
+        double point = offset + k * TWO_PI;
+        double slack = 1e-12 * Math.max(1, Math.abs(point));
+        if (point - slack > b) {
+            // The nearest candidate below may also be within slack of a
+            point -= TWO_PI;
+        }
+        return point + slack >= a && point - slack <= b;
+    }
+
+    private void setOutward(double lower, double upper) {
+        lo = Math.nextDown(lower);
+        hi = Math.nextUp(upper);
+    }
+
+    private void setEntire() {
+        lo = Double.NEGATIVE_INFINITY;
+        hi = Double.POSITIVE_INFINITY;
+    }
+
+    private void setEmpty() {
+        lo = Double.NaN;
+        hi = Double.NaN;
+    }
+}
@@ -0,0 +1,174 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A hash-consing factory for syntax tree nodes.
+ * Every node it returns is frozen and structurally unique within the
+ * interner: asking twice for the same operator over the same children
+ * returns the same instance. Interning a tree therefore turns repeated
+ * subtrees into shared nodes, giving a DAG. Because children are interned
+ * before their parents, two nodes are structurally equal exactly when their
+ * labels match and their children are the same instances, so hashing never
+ * has to walk a subtree. An interner is not thread-safe.
+ */
+class NodeInterner implements ASTVisitor<ASTNode> {
+    private static final int NUMBER = 0;
+    private static final int VARIABLE = 1;
+    private static final int BINARY = 2;
+    private static final int UNARY = 3;
+    private static final int FUNCTION = 4;
+
+    private final Map<Key, ASTNode> nodes = new HashMap<>();
+
+    /**
+     * Interns a whole tree, sharing every repeated subtree.
+     *
+     * @param ast the root of the tree to intern
+     * @return the root of the interned DAG
+     */
+    ASTNode intern(ASTNode ast) {
+        return ast.accept(this);
+    }
+
+    ASTNode number(double value) {
+        Key key = new Key(NUMBER, null, Double.doubleToRawLongBits(value));
+        ASTNode node = nodes.get(key);
+        if (node == null) {
+            node = store(key, new NumberNode(value));
+        }
+        return node;
+    }
+
+    ASTNode variable(String name, int slot) {
+        Key key = new Key(VARIABLE, name, slot);
+        ASTNode node = nodes.get(key);
+        if (node == null) {
+            VariableNode variable = new VariableNode(name);
+            variable.slot = slot;
+            node = store(key, variable);
+        }
+        return node;
+    }
+
+    ASTNode binary(String operator, ASTNode left, ASTNode right) {
+        Key key = new Key(BINARY, operator, 0, left, right);
+        ASTNode node = nodes.get(key);
+        if (node == null) {
+            node = store(key, new BinaryOpNode(operator, left, right));
+        }
+        return node;
+    }
+
+    ASTNode unary(String operator, ASTNode operand) {
+        Key key = new Key(UNARY, operator, 0, operand);
+        ASTNode node = nodes.get(key);
+        if (node == null) {
+            node = store(key, new UnaryOpNode(operator, operand));
+        }
+        return node;
+    }
+
+    ASTNode function(String name, List<ASTNode> arguments) {
+        Key key = new Key(FUNCTION, name, 0, arguments.toArray(new ASTNode[0]));
+        ASTNode node = nodes.get(key);
+        if (node == null) {
+            node = store(key, new FunctionNode(name, arguments));
+        }
+        return node;
+    }
+
+    /**
+     * @return the number of distinct nodes interned so far
+     */
+    int size() {
+        return nodes.size();
+    }
+
+    private ASTNode store(Key key, ASTNode node) {
+        node.freeze();
+        nodes.put(key, node);
+        return node;
+    }
+
+    @Override
+    public ASTNode visitNumberNode(NumberNode node) {
+        return number(node.value);
+    }
+
+    @Override
+    public ASTNode visitVariableNode(VariableNode node) {
+        return variable(node.name, node.slot);
+    }
+
+    @Override
+    public ASTNode visitBinaryOpNode(BinaryOpNode node) {
+        List<ASTNode> children = node.getChildren();
+        return binary(node.operator, children.get(0).accept(this), children.get(1).accept(this));
+    }
+
+    @Override
+    public ASTNode visitUnaryOpNode(UnaryOpNode node) {
+        return unary(node.operator, node.getChildren().get(0).accept(this));
+    }
+
+    @Override
+    public ASTNode visitFunctionNode(FunctionNode node) {
+        List<ASTNode> arguments = new ArrayList<>(node.getChildren().size());
+        for (ASTNode argument : node.getChildren()) {
+            arguments.add(argument.accept(this));
+        }
+        return function(node.name, arguments);
+    }
+
+    /**
+     * The structural identity of a node whose children are already interned.
+     */
+    private static final class Key {
+        private final int kind;
+        private final String label;
+        private final long bits;
+        private final ASTNode[] children;
+        private final int hash;
+
+        Key(int kind, String label, long bits, ASTNode... children) {
+            this.kind = kind;
+            this.label = label;
+            this.bits = bits;
+            this.children = children;
+
+            int h = kind * 31 + (label == null ? 0 : label.hashCode());
+            h = h * 31 + Long.hashCode(bits);
+            for (ASTNode child : children) {
+                h = h * 31 + System.identityHashCode(child);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            if (kind != that.kind || bits != that.bits || children.length != that.children.length
+                    || (label == null ? that.label != null : !label.equals(that.label))) {
+                return false;
+            }
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] != that.children[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
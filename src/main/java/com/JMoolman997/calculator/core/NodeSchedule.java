@@ -0,0 +1,93 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A tree or DAG flattened into a topologically ordered list of nodes.
+ * Each distinct node appears once, after all of its operands, as an opcode
+ * with the indexes of its operand entries, or with a constant value or a
+ * frame slot for a leaf. The root is the last entry. Shared by the backends
+ * that sweep over a flat schedule instead of walking the tree.
+ */
+final class NodeSchedule {
+    final int[] opcodes;
+    // Operand entry indexes; for LOAD, left holds the frame slot
+    final int[] left;
+    final int[] right;
+    final double[] constants;
+
+    private NodeSchedule(int length) {
+        opcodes = new int[length];
+        left = new int[length];
+        right = new int[length];
+        constants = new double[length];
+    }
+
+    /**
+     * Flattens a tree or DAG.
+     *
+     * @param ast the root of the tree or DAG
+     * @param layout the frame layout to resolve variables against
+     * @return the schedule
+     * @throws RuntimeException if the tree uses an unknown operator, function or variable
+     */
+    static NodeSchedule of(ASTNode ast, VariableLayout layout) {
+        List<ASTNode> order = new ArrayList<>();
+        Map<ASTNode, Integer> indexes = new IdentityHashMap<>();
+        visit(ast, order, indexes);
+
+        NodeSchedule schedule = new NodeSchedule(order.size());
+        for (int i = 0; i < order.size(); i++) {
+            ASTNode node = order.get(i);
+            List<ASTNode> children = node.getChildren();
+            if (node instanceof NumberNode) {
+                schedule.opcodes[i] = Opcodes.CONST;
+                schedule.constants[i] = ((NumberNode) node).value;
+            } else if (node instanceof VariableNode) {
+                String name = ((VariableNode) node).name;
+                schedule.opcodes[i] = Opcodes.LOAD;
+                schedule.left[i] = layout.slotOf(name);
+                if (schedule.left[i] < 0) {
+                    throw new RuntimeException("Undefined variable: " + name);
+                }
+            } else {
+                if (node instanceof BinaryOpNode) {
+                    schedule.opcodes[i] = Opcodes.binary((BinaryOpNode) node);
+                } else if (node instanceof UnaryOpNode) {
+                    schedule.opcodes[i] = Opcodes.unary((UnaryOpNode) node);
+                } else {
+                    schedule.opcodes[i] = Opcodes.function((FunctionNode) node);
+                }
+                schedule.left[i] = indexes.get(children.get(0));
+                if (children.size() > 1) {
+                    schedule.right[i] = indexes.get(children.get(1));
+                }
+            }
+        }
+        return schedule;
+    }
+
+    /**
+     * Appends a node after all of its operands, visiting each distinct node once.
+     */
+    private static void visit(ASTNode node, List<ASTNode> order, Map<ASTNode, Integer> indexes) {
+        if (indexes.containsKey(node)) {
+            return;
+        }
+        for (ASTNode child : node.getChildren()) {
+            visit(child, order, indexes);
+        }
+        indexes.put(node, order.size());
+        order.add(node);
+    }
+
+    /**
+     * @return the number of entries
+     */
+    int length() {
+        return opcodes.length;
+    }
+}
@@ -0,0 +1,271 @@
+package com.JMoolman997.calculator.core;
+
+/**
+ * Integer opcodes shared by the compiled expression backends.
+ * Every operator and function an expression can use is given one opcode,
+ * so a backend can dispatch with a dense switch instead of string lookups.
+ * CONST and LOAD take an inline operand in the instruction stream.
+ */
+final class Opcodes {
+    /** Push constants[operand]. */
+    static final int CONST = 0;
+    /** Push variables[operand]. */
+    static final int LOAD = 1;
+
+    static final int NEG = 2;
+    static final int ADD = 3;
+    static final int SUB = 4;
+    static final int MUL = 5;
+    static final int DIV = 6;
+    static final int POW = 7;
+
+    static final int SIN = 8;
+    static final int COS = 9;
+    static final int TAN = 10;
+    static final int CSC = 11;
+    static final int SEC = 12;
+    static final int COT = 13;
+    static final int ASIN = 14;
+    static final int ACOS = 15;
+    static final int ATAN = 16;
+    static final int ABS = 17;
+    static final int SQRT = 18;
+
+    static final int COUNT = 19;
+
+    private static final String[] NAMES = {
+        "const", "load", "neg", "+", "-", "*", "/", "^",
+        "sin", "cos", "tan", "csc", "sec", "cot", "asin", "acos", "atan", "abs", "sqrt"
+    };
+
+    private Opcodes() {
+    }
+
+    /**
+     * Looks up a binary operator symbol.
+     *
+     * @param operator the operator symbol, e.g. "+"
+     * @return the opcode of the operator, or -1 if it is unknown
+     */
+    static int lookupBinary(String operator) {
+        switch (operator) {
+            case "+":
+                return ADD;
+            case "-":
+                return SUB;
+            case "*":
+                return MUL;
+            case "/":
+                return DIV;
+            case "^":
+                return POW;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Looks up a unary operator symbol.
+     *
+     * @param operator the operator symbol, e.g. "-"
+     * @return the opcode of the operator, or -1 if it is unknown
+     */
+    static int lookupUnary(String operator) {
+        return operator.equals("-") ? NEG : -1;
+    }
+
+    /**
+     * Looks up a function name.
+     *
+     * @param name the function name, e.g. "sin"
+     * @return the opcode of the function, or -1 if it is unknown
+     */
+    static int lookupFunction(String name) {
+        if (name.equals("pow")) {
+            return POW;
+        }
+        for (int i = SIN; i <= SQRT; i++) {
+            if (NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the opcode resolved for a binary operator node.
+     *
+     * @param node the node
+     * @return the opcode of the node's operator
+     * @throws IllegalArgumentException if the operator is unknown
+     */
+    static int binary(BinaryOpNode node) {
+        if (node.opcode < 0) {
+            throw new IllegalArgumentException("Unknown binary operator: " + node.operator);
+        }
+        return node.opcode;
+    }
+
+    /**
+     * Returns the opcode resolved for a unary operator node.
+     *
+     * @param node the node
+     * @return the opcode of the node's operator
+     * @throws RuntimeException if the operator is unknown
+     */
+    static int unary(UnaryOpNode node) {
+        if (node.opcode < 0) {
+            throw new RuntimeException("Unknown operator: " + node.operator);
+        }
+        return node.opcode;
+    }
+
+    /**
+     * Returns the opcode resolved for a function call and checks its number of arguments.
+     *
+     * @param node the node
+     * @return the opcode of the called function
+     * @throws IllegalArgumentException if the argument count is wrong
+     * @throws RuntimeException if the function is unknown
+     */
+    static int function(FunctionNode node) {
+        if (node.opcode < 0) {
+            throw new RuntimeException("Unknown function: " + node.name);
+        }
+        int expected = arity(node.opcode);
+        int actual = node.getChildren().size();
+        if (actual != expected) {
+            throw new IllegalArgumentException(node.name + " function requires " + expected
+                + (expected == 1 ? " argument" : " arguments"));
+        }
+        return node.opcode;
+    }
+
+    /**
+     * @param opcode an operator or function opcode
+     * @return the number of operands the opcode consumes
+     */
+    static int arity(int opcode) {
+        if (opcode >= ADD && opcode <= POW) {
+            return 2;
+        }
+        return opcode == CONST || opcode == LOAD ? 0 : 1;
+    }
+
+    /**
+     * @param opcode any opcode
+     * @return a readable name for the opcode
+     */
+    static String name(int opcode) {
+        return NAMES[opcode];
+    }
+
+    /**
+     * Applies a unary operator or function.
+     *
+     * @param opcode the opcode to apply
+     * @param a the operand
+     * @return the result
+     */
+    static double apply(int opcode, double a) {
+        switch (opcode) {
+            case NEG:
+                return -a;
+            case SIN:
+                return Math.sin(a);
+            case COS:
+                return Math.cos(a);
+            case TAN:
+                return Math.tan(a);
+            case CSC:
+                return 1 / Math.sin(a);
+            case SEC:
+                return 1 / Math.cos(a);
+            case COT:
+                return 1 / Math.tan(a);
+            case ASIN:
+                return Math.asin(a);
+            case ACOS:
+                return Math.acos(a);
+            case ATAN:
+                return Math.atan(a);
+            case ABS:
+                return Math.abs(a);
+            case SQRT:
+                return Math.sqrt(a);
+            default:
+                throw new IllegalArgumentException("Not a unary opcode: " + opcode);
+        }
+    }
+
+    /**
+     * Applies a binary operator.
+     *
+     * @param opcode the opcode to apply
+     * @param a the left operand
+     * @param b the right operand
+     * @return the result
+     */
+    static double apply(int opcode, double a, double b) {
+        switch (opcode) {
+            case ADD:
+                return a + b;
+            case SUB:
+                return a - b;
+            case MUL:
+                return a * b;
+            case DIV:
+                return a / b;
+            case POW:
+                return Math.pow(a, b);
+            default:
+                throw new IllegalArgumentException("Not a binary opcode: " + opcode);
+        }
+    }
+
+    /**
+     * Returns the derivative of a unary operator or function.
+     *
+     * @param opcode the opcode to differentiate
+     * @param a the operand
+     * @return the derivative of the operation at a
+     */
+    static double derivative(int opcode, double a) {
+        switch (opcode) {
+            case NEG:
+                return -1;
+            case SIN:
+                return Math.cos(a);
+            case COS:
+                return -Math.sin(a);
+            case TAN: {
+                double cos = Math.cos(a);
+                return 1 / (cos * cos);
+            }
+            case CSC: {
+                double sin = Math.sin(a);
+                return -Math.cos(a) / (sin * sin);
+            }
+            case SEC: {
+                double cos = Math.cos(a);
+                return Math.sin(a) / (cos * cos);
+            }
+            case COT: {
+                double sin = Math.sin(a);
+                return -1 / (sin * sin);
+            }
+            case ASIN:
+                return 1 / Math.sqrt(1 - a * a);
+            case ACOS:
+                return -1 / Math.sqrt(1 - a * a);
+            case ATAN:
+                return 1 / (1 + a * a);
+            case ABS:
+                return Math.signum(a);
+            case SQRT:
+                return 0.5 / Math.sqrt(a);
+            default:
+                throw new IllegalArgumentException("Not a unary opcode: " + opcode);
+        }
+    }
+}
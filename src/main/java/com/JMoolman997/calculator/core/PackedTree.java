@@ -0,0 +1,225 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact encoding of a syntax tree in a few primitive arrays.
+ * Node {@code i} occupies three consecutive ints of {@code nodes}: its opcode,
+ * then either an operand (a constant pool index for CONST, a variable index
+ * for LOAD) or the indexes of its children. Nodes are stored in postorder, so
+ * the root is the last node and every child precedes its parent. Compared to a graph of node objects
+ * this needs no object headers, child lists or operator strings, and a walk
+ * touches contiguous memory. Packed trees are immutable.
+ */
+final class PackedTree {
+    private static final int STRIDE = 3;
+    // Marks pow(a, b), which shares the POW opcode with a ^ b but must unpack as a call
+    private static final int CALL = 1 << 8;
+
+    private final int[] nodes;
+    private final double[] constants;
+    private final String[] variables;
+
+    private PackedTree(int[] nodes, double[] constants, String[] variables) {
+        this.nodes = nodes;
+        this.constants = constants;
+        this.variables = variables;
+    }
+
+    /**
+     * Encodes a syntax tree.
+     *
+     * @param ast the root of the tree to encode
+     * @return the packed tree
+     * @throws RuntimeException if the tree uses an unknown operator or function
+     */
+    static PackedTree pack(ASTNode ast) {
+        Packer packer = new Packer();
+        ast.accept(packer);
+        return packer.build();
+    }
+
+    /**
+     * Decodes the packed tree back into node objects.
+     *
+     * @return the root of a new, unfrozen syntax tree
+     */
+    ASTNode unpack() {
+        ASTNode[] unpacked = new ASTNode[size()];
+        for (int i = 0; i < unpacked.length; i++) {
+            int opcode = nodes[i * STRIDE];
+            int first = nodes[i * STRIDE + 1];
+            int second = nodes[i * STRIDE + 2];
+            switch (opcode) {
+                case Opcodes.CONST:
+                    unpacked[i] = new NumberNode(constants[first]);
+                    break;
+                case Opcodes.LOAD:
+                    unpacked[i] = new VariableNode(variables[first]);
+                    break;
+                case Opcodes.NEG:
+                    unpacked[i] = new UnaryOpNode("-", unpacked[first]);
+                    break;
+                case Opcodes.ADD:
+                case Opcodes.SUB:
+                case Opcodes.MUL:
+                case Opcodes.DIV:
+                case Opcodes.POW:
+                    unpacked[i] = new BinaryOpNode(Opcodes.name(opcode), unpacked[first], unpacked[second]);
+                    break;
+                case Opcodes.POW | CALL:
+                    unpacked[i] = new FunctionNode("pow", Arrays.asList(unpacked[first], unpacked[second]));
+                    break;
+                default:
+                    List<ASTNode> arguments = new ArrayList<>(1);
+                    arguments.add(unpacked[first]);
+                    unpacked[i] = new FunctionNode(Opcodes.name(opcode), arguments);
+                    break;
+            }
+        }
+        return unpacked[unpacked.length - 1];
+    }
+
+    /**
+     * Evaluates the packed tree by walking it from the root.
+     *
+     * @param frame the variable values, indexed as {@link #variables()}
+     * @return the value of the expression
+     */
+    double evaluate(double[] frame) {
+        return evaluate(size() - 1, frame);
+    }
+
+    private double evaluate(int node, double[] frame) {
+        int base = node * STRIDE;
+        int opcode = nodes[base];
+        int first = nodes[base + 1];
+        switch (opcode) {
+            case Opcodes.CONST:
+                return constants[first];
+            case Opcodes.LOAD:
+                return frame[first];
+            case Opcodes.ADD:
+                return evaluate(first, frame) + evaluate(nodes[base + 2], frame);
+            case Opcodes.SUB:
+                return evaluate(first, frame) - evaluate(nodes[base + 2], frame);
+            case Opcodes.MUL:
+                return evaluate(first, frame) * evaluate(nodes[base + 2], frame);
+            case Opcodes.DIV:
+                return evaluate(first, frame) / evaluate(nodes[base + 2], frame);
+            case Opcodes.POW:
+            case Opcodes.POW | CALL:
+                return Math.pow(evaluate(first, frame), evaluate(nodes[base + 2], frame));
+            default:
+                return Opcodes.apply(opcode, evaluate(first, frame));
+        }
+    }
+
+    /**
+     * @return the variable names, in frame order
+     */
+    VariableLayout variables() {
+        return VariableLayout.of(variables);
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    int size() {
+        return nodes.length / STRIDE;
+    }
+
+    /**
+     * @return an estimate of the heap used by this packed tree, in bytes
+     */
+    long estimatedBytes() {
+        // One object and three array headers; the variable name strings are shared with the source tree
+        return 24 + 3 * 16L + 4L * nodes.length + 8L * constants.length + 4L * variables.length;
+    }
+
+    /**
+     * Writes nodes in postorder while visiting the tree.
+     */
+    private static class Packer implements ASTVisitor<Integer> {
+        private int[] nodes = new int[16 * STRIDE];
+        private int size = 0;
+        private double[] constants = new double[4];
+        private int constantCount = 0;
+        private final List<String> variables = new ArrayList<>();
+
+        PackedTree build() {
+            return new PackedTree(
+                Arrays.copyOf(nodes, size * STRIDE),
+                Arrays.copyOf(constants, constantCount),
+                variables.toArray(new String[0]));
+        }
+
+        private int add(int opcode, int a, int b) {
+            int base = size * STRIDE;
+            if (base == nodes.length) {
+                nodes = Arrays.copyOf(nodes, base * 2);
+            }
+            nodes[base] = opcode;
+            nodes[base + 1] = a;
+            nodes[base + 2] = b;
+            return size++;
+        }
+
+        @Override
+        public Integer visitNumberNode(NumberNode node) {
+            long bits = Double.doubleToRawLongBits(node.value);
+            int index = -1;
+            for (int i = 0; i < constantCount; i++) {
+                if (Double.doubleToRawLongBits(constants[i]) == bits) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                if (constantCount == constants.length) {
+                    constants = Arrays.copyOf(constants, constantCount * 2);
+                }
+                constants[constantCount] = node.value;
+                index = constantCount++;
+            }
+            return add(Opcodes.CONST, index, 0);
+        }
+
+        @Override
+        public Integer visitVariableNode(VariableNode node) {
+            int index = variables.indexOf(node.name);
+            if (index < 0) {
+                index = variables.size();
+                variables.add(node.name);
+            }
+            return add(Opcodes.LOAD, index, 0);
+        }
+
+        @Override
+        public Integer visitBinaryOpNode(BinaryOpNode node) {
+            int opcode = Opcodes.binary(node);
+            int left = node.getChildren().get(0).accept(this);
+            int right = node.getChildren().get(1).accept(this);
+            return add(opcode, left, right);
+        }
+
+        @Override
+        public Integer visitUnaryOpNode(UnaryOpNode node) {
+            int opcode = Opcodes.unary(node);
+            return add(opcode, node.getChildren().get(0).accept(this), 0);
+        }
+
+        @Override
+        public Integer visitFunctionNode(FunctionNode node) {
+            List<ASTNode> arguments = node.getChildren();
+            int opcode = Opcodes.function(node);
+            int a = arguments.get(0).accept(this);
+            if (arguments.size() > 1) {
+                return add(opcode | CALL, a, arguments.get(1).accept(this));
+            }
+            return add(opcode, a, 0);
+        }
+    }
+}
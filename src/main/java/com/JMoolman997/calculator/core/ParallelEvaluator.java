@@ -0,0 +1,139 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates one expression over a large range of points on several threads.
+ * The range is split into contiguous chunks that are evaluated with
+ * {@link BatchEvaluator}; each chunk writes only its own part of the output,
+ * so results land in order without any coordination. Every worker thread
+ * keeps its own batch evaluator, and the compiled program is immutable, so
+ * no evaluation state is shared. Ranges smaller than the parallelism
+ * threshold are evaluated on the calling thread.
+ */
+class ParallelEvaluator {
+    static final int DEFAULT_THRESHOLD = 1 << 15;
+
+    private final ExecutorService executor;
+    private final int threshold;
+    private final ThreadLocal<BatchEvaluator> evaluators = ThreadLocal.withInitial(BatchEvaluator::new);
+
+    /**
+     * Constructs a ParallelEvaluator on the common fork/join pool with the default threshold.
+     */
+    ParallelEvaluator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs a ParallelEvaluator.
+     * A {@link ForkJoinPool} splits the range recursively; any other executor
+     * receives one task per chunk.
+     *
+     * @param executor the executor to run chunks on
+     * @param threshold the smallest number of points worth splitting, also the minimum chunk size
+     * @throws IllegalArgumentException if threshold is not positive
+     */
+    ParallelEvaluator(ExecutorService executor, int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        this.executor = executor;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Evaluates an expression at every point.
+     *
+     * @param expression the expression to evaluate
+     * @param columns the variable values, one column per layout slot
+     * @param out receives the value at each point; its length is the number of points
+     * @throws IllegalArgumentException if there are too few columns or a column is too short
+     */
+    void evaluate(BoundExpression expression, double[][] columns, double[] out) {
+        PostfixProgram program = expression.program();
+        int points = out.length;
+        BatchEvaluator.checkColumns(program.layout, columns, points);
+
+        if (points < threshold) {
+            evaluators.get().evaluate(program, columns, out, 0, points);
+        } else if (executor instanceof ForkJoinPool) {
+            ((ForkJoinPool) executor).invoke(new RangeTask(program, columns, out, 0, points));
+        } else {
+            evaluateInChunks(program, columns, out);
+        }
+    }
+
+    /**
+     * Submits one task per chunk to a plain executor and waits for all of them.
+     */
+    private void evaluateInChunks(PostfixProgram program, double[][] columns, double[] out) {
+        int points = out.length;
+        int targetChunks = Runtime.getRuntime().availableProcessors() * 4;
+        int chunkSize = Math.max(threshold, (points + targetChunks - 1) / targetChunks);
+
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int start = 0; start < points; start += chunkSize) {
+            int from = start;
+            int to = Math.min(points, start + chunkSize);
+            chunks.add(CompletableFuture.runAsync(
+                () -> evaluators.get().evaluate(program, columns, out, from, to), executor));
+        }
+        try {
+            CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the smallest number of points that is evaluated in parallel
+     */
+    int threshold() {
+        return threshold;
+    }
+
+    /**
+     * Halves its range until it is below twice the threshold, then evaluates it.
+     */
+    private class RangeTask extends RecursiveAction {
+        private final PostfixProgram program;
+        private final double[][] columns;
+        private final double[] out;
+        private final int from;
+        private final int to;
+
+        RangeTask(PostfixProgram program, double[][] columns, double[] out, int from, int to) {
+            this.program = program;
+            this.columns = columns;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < threshold * 2) {
+                evaluators.get().evaluate(program, columns, out, from, to);
+                return;
+            }
+            // Split on a chunk boundary so that only the last chunk is partial
+            int middle = from + (to - from) / 2;
+            int aligned = middle - (middle - from) % BatchEvaluator.CHUNK_SIZE;
+            if (aligned > from) {
+                middle = aligned;
+            }
+            invokeAll(new RangeTask(program, columns, out, from, middle),
+                      new RangeTask(program, columns, out, middle, to));
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.JMoolman997.calculator.core;
 
+import java.util.Collections;
 import java.util.List;
 
+import com.JMoolman997.calculator.core.Token.TokenType;
+
 class Parser {
     private final List<Token> tokens;
     private int currentTokenIndex = 0;
@@ -20,65 +23,144 @@ class Parser {
     }
 
     private void eat(TokenType type) {
-        if (currentToken.type == type) {
+        if (currentToken.getType() == type) {
             advance();
         } else {
-            throw new RuntimeException("Unexpected token: " + currentToken.type);
+            throw new RuntimeException("Unexpected token: " + currentToken.getType());
         }
     }
 
-    private ASTNode factor() {
+    /**
+     * Checks whether the current token is the given operator.
+     *
+     * @param operator the operator symbol to test for
+     * @return true if the current token is that operator
+     */
+    boolean atOperator(String operator) {
+        return currentToken.getType() == TokenType.OPERATOR && currentToken.getValue().equals(operator);
+    }
+
+    /**
+     * Parses the parenthesised argument of a function call.
+     *
+     * @param name the name of the function being called
+     * @return the function call node
+     */
+    private ASTNode call(String name) {
+        return new FunctionNode(name, Collections.singletonList(group()));
+    }
+
+    /**
+     * Parses a parenthesised expression. The tree of a group depends only on
+     * the tokens between its parentheses.
+     *
+     * @return the tree of the expression inside the parentheses
+     */
+    ASTNode group() {
+        eat(TokenType.LPAREN);
+        ASTNode node = expression();
+        eat(TokenType.RPAREN);
+        return node;
+    }
+
+    /**
+     * @return the index of the current token
+     */
+    int position() {
+        return currentTokenIndex;
+    }
+
+    /**
+     * Moves the parser to the given token, skipping over everything before it.
+     *
+     * @param index the index of the token to continue from
+     */
+    void seek(int index) {
+        currentTokenIndex = index;
+        currentToken = tokens.get(index);
+    }
+
+    private ASTNode primary() {
         Token token = currentToken;
-        if (token.type == TokenType.NUMBER) {
+        if (token.getType() == TokenType.NUMBER) {
             eat(TokenType.NUMBER);
-            return new NumberNode(Double.parseDouble(token.value));
-        } else if (token.type == TokenType.IDENTIFIER) {
+            return new NumberNode(Double.parseDouble(token.getValue()));
+        } else if (token.getType() == TokenType.CONSTANT) {
+            eat(TokenType.CONSTANT);
+            return new NumberNode(ConstantToken.valueOf(token.getValue()));
+        } else if (token.getType() == TokenType.FUNCTION) {
+            eat(TokenType.FUNCTION);
+            return call(token.getValue());
+        } else if (token.getType() == TokenType.IDENTIFIER) {
+            // The lexers report every word as an identifier, so calls and
+            // named constants are told apart from variables here.
             eat(TokenType.IDENTIFIER);
-            return new VariableNode(token.value);
-        } else if (token.type == TokenType.LPAREN) {
-            eat(TokenType.LPAREN);
-            ASTNode node = expression();
-            eat(TokenType.RPAREN);
-            return node;
-        } else if (token.type == TokenType.MINUS) {
-            eat(TokenType.MINUS);
+            if (currentToken.getType() == TokenType.LPAREN) {
+                return call(token.getValue());
+            } else if (ConstantToken.isConstant(token.getValue())) {
+                return new NumberNode(ConstantToken.valueOf(token.getValue()));
+            }
+            return new VariableNode(token.getValue());
+        } else if (token.getType() == TokenType.LPAREN) {
+            return group();
+        }
+        throw new RuntimeException("Unexpected token: " + token.getType());
+    }
+
+    private ASTNode power() {
+        ASTNode node = primary();
+        if (atOperator("^")) {
+            eat(TokenType.OPERATOR);
+            // Exponentiation is right associative and binds tighter than negation
+            node = new BinaryOpNode("^", node, factor());
+        }
+        return node;
+    }
+
+    private ASTNode factor() {
+        if (atOperator("-")) {
+            eat(TokenType.OPERATOR);
             return new UnaryOpNode("-", factor());
         }
-        throw new RuntimeException("Unexpected token: " + token.type);
+        return power();
     }
 
-    private ASTNode term() {
+    /**
+     * Parses a product or quotient of factors. The tree of a term depends
+     * only on its own tokens and the token that ends it.
+     *
+     * @return the tree of the term
+     */
+    ASTNode term() {
         ASTNode node = factor();
-        while (currentToken.type == TokenType.MULTIPLY || currentToken.type == TokenType.DIVIDE) {
-            Token token = currentToken;
-            if (token.type == TokenType.MULTIPLY) {
-                eat(TokenType.MULTIPLY);
-                node = new BinaryOpNode("*", node, factor());
-            } else if (token.type == TokenType.DIVIDE) {
-                eat(TokenType.DIVIDE);
-                node = new BinaryOpNode("/", node, factor());
-            }
+        while (atOperator("*") || atOperator("/")) {
+            String operator = currentToken.getValue();
+            eat(TokenType.OPERATOR);
+            node = new BinaryOpNode(operator, node, factor());
         }
         return node;
     }
 
-    private ASTNode expression() {
+    /**
+     * Parses a sum or difference of terms.
+     *
+     * @return the tree of the expression
+     */
+    ASTNode expression() {
         ASTNode node = term();
-        while (currentToken.type == TokenType.PLUS || currentToken.type == TokenType.MINUS) {
-            Token token = currentToken;
-            if (token.type == TokenType.PLUS) {
-                eat(TokenType.PLUS);
-                node = new BinaryOpNode("+", node, term());
-            } else if (token.type == TokenType.MINUS) {
-                eat(TokenType.MINUS);
-                node = new BinaryOpNode("-", node, term());
-            }
+        while (atOperator("+") || atOperator("-")) {
+            String operator = currentToken.getValue();
+            eat(TokenType.OPERATOR);
+            node = new BinaryOpNode(operator, node, term());
         }
         return node;
     }
 
     ASTNode parse() {
-        return expression();
+        long start = EngineMetrics.start();
+        ASTNode node = expression();
+        eat(TokenType.EOF);
+        EngineMetrics.PARSE.record(start);
+        return node;
     }
 }
-
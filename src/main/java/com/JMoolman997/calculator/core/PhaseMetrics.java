@@ -0,0 +1,112 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Striped counters and a fixed-bucket latency histogram for one phase.
+ * Recording a call only increments LongAdders, so it never allocates and
+ * threads recording at the same time do not contend on one cache line.
+ */
+final class PhaseMetrics implements PhaseMetricsMXBean {
+    // Powers of four from 16 nanoseconds, below a single evaluation, to about 4 seconds
+    private static final long[] BOUNDS = {
+        16L, 64L, 256L, 1_024L, 4_096L, 16_384L, 65_536L, 262_144L, 1_048_576L,
+        4_194_304L, 16_777_216L, 67_108_864L, 268_435_456L, 1_073_741_824L, 4_294_967_296L
+    };
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+    PhaseMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a call that started at the given time.
+     *
+     * @param start the System.nanoTime() value taken when the call started
+     */
+    void record(long start) {
+        record(start, 1);
+    }
+
+    /**
+     * Records a sampled call as standing for every call of its sampling interval.
+     *
+     * @param start the System.nanoTime() value taken when the call started
+     * @see EngineMetrics#sampled(int)
+     */
+    void recordSample(long start) {
+        record(start, EngineMetrics.SAMPLE_INTERVAL);
+    }
+
+    private void record(long start, int calls) {
+        if (EngineMetrics.ENABLED) {
+            long elapsed = System.nanoTime() - start;
+            count.add(calls);
+            totalNanos.add(elapsed * calls);
+            maxNanos.accumulate(elapsed);
+            int bucket = 0;
+            while (bucket < BOUNDS.length && elapsed >= BOUNDS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].add(calls);
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public double getMeanNanos() {
+        long calls = count.sum();
+        return calls == 0 ? 0 : (double) totalNanos.sum() / calls;
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    @Override
+    public long[] getBucketBoundsNanos() {
+        return BOUNDS.clone();
+    }
+
+    @Override
+    public long[] getHistogram() {
+        long[] histogram = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            histogram[i] = buckets[i].sum();
+        }
+        return histogram;
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.JMoolman997.calculator.core;
+
+/**
+ * Timing statistics for one phase of expression processing (lexing, parsing,
+ * evaluation at one point or batch evaluation over many), published over JMX under
+ * {@code com.JMoolman997.calculator:type=EngineMetrics,phase=<name>}.
+ */
+public interface PhaseMetricsMXBean {
+    /**
+     * @return the number of completed calls; for a sampled phase, the number
+     *         of calls the recorded samples stand for
+     */
+    long getCount();
+
+    /**
+     * @return the total time spent in completed calls, in nanoseconds
+     */
+    long getTotalNanos();
+
+    /**
+     * @return the mean time per call in nanoseconds, or 0 if there were no calls
+     */
+    double getMeanNanos();
+
+    /**
+     * @return the slowest call in nanoseconds
+     */
+    long getMaxNanos();
+
+    /**
+     * @return the upper bound of each histogram bucket except the last, in nanoseconds
+     */
+    long[] getBucketBoundsNanos();
+
+    /**
+     * Returns the latency histogram. Bucket i counts calls that took less
+     * than {@code getBucketBoundsNanos()[i]} and at least the previous bound;
+     * the last bucket counts everything slower.
+     *
+     * @return the number of calls in each bucket
+     */
+    long[] getHistogram();
+
+    /**
+     * Clears every counter of the phase.
+     */
+    void reset();
+}
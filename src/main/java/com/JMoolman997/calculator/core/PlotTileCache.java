@@ -0,0 +1,269 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of function samples for plotting, organised as
+ * tiles along the x axis at power-of-two resolution levels.
+ * <p>
+ * A tile at level L with index i covers [i * 2^L, (i + 1) * 2^L) with
+ * {@link #TILE_SAMPLES} evenly spaced samples, so the sample positions are
+ * exact binary fractions. The two tiles one level down that cover the same
+ * range therefore contain every sample of their parent, and a parent also
+ * holds every other sample of each child. Panning only evaluates tiles that
+ * are newly exposed. Zooming out builds coarse tiles from cached fine ones
+ * without evaluating anything, and zooming in evaluates only the half of a
+ * fine tile's samples that its cached parent does not have.
+ * <p>
+ * When the memory cap is reached the least recently used tiles are evicted.
+ */
+public class PlotTileCache {
+    static final int TILE_SAMPLES = 256;
+    private static final int SAMPLE_SHIFT = 8;
+    // A sample array plus the key, entry and array headers
+    static final long TILE_BYTES = TILE_SAMPLES * 8L + 96;
+
+    private final long maximumBytes;
+    private final Map<TileKey, double[]> tiles;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+
+    /**
+     * Constructs a PlotTileCache that holds at most about the given number of bytes of samples.
+     *
+     * @param maximumBytes the memory cap
+     * @throws IllegalArgumentException if the cap is smaller than one tile
+     */
+    public PlotTileCache(long maximumBytes) {
+        if (maximumBytes < TILE_BYTES) {
+            throw new IllegalArgumentException("Cache must hold at least one tile of " + TILE_BYTES
+                + " bytes: " + maximumBytes);
+        }
+        this.maximumBytes = maximumBytes;
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Samples a function over [x0, x1] at about one sample per pixel,
+     * assembling the curve from cached tiles where it can.
+     *
+     * @param function the function; it may use at most the one given variable
+     * @param variable the name of the variable to vary
+     * @param x0 the left end of the range
+     * @param x1 the right end of the range
+     * @param pixels the width of the target view in pixels
+     * @return the sampled curve, from the last sample at or before x0 to the first at or after x1
+     * @throws IllegalArgumentException if the range is empty or pixels is not positive
+     */
+    public SampledCurve sample(Expression function, String variable, double x0, double x1, int pixels) {
+        if (!(x0 < x1) || pixels <= 0) {
+            throw new IllegalArgumentException("Empty range: [" + x0 + ", " + x1 + "] over " + pixels + " pixels");
+        }
+        int level = levelFor((x1 - x0) / pixels);
+        long first = (long) Math.floor(Math.scalb(x0, -level));
+        long last = (long) Math.floor(Math.scalb(x1, -level));
+
+        Expression.Context context = function.newContext();
+        int slot = function.slotOf(variable);
+        String id = tileId(function, variable);
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, (last - first + 1) * TILE_SAMPLES + 1);
+        double[] xs = new double[capacity];
+        double[] ys = new double[capacity];
+        int n = 0;
+        for (long index = first; index <= last; index++) {
+            double[] samples = tile(id, context, slot, level, index);
+            for (int k = 0; k < TILE_SAMPLES; k++) {
+                double x = sampleX(level, index, k);
+                if (x > x1) {
+                    // Keep the first sample past the right end, then stop
+                    xs[n] = x;
+                    ys[n++] = samples[k];
+                    return new SampledCurve(xs, ys, n, true);
+                }
+                if (n > 0 && xs[n - 1] <= x0 && x <= x0) {
+                    // Only the last sample at or before the left end is kept
+                    n = 0;
+                }
+                xs[n] = x;
+                ys[n++] = samples[k];
+            }
+        }
+        // x1 lies between the last sample of the last tile and the next tile
+        double x = sampleX(level, last + 1, 0);
+        xs[n] = x;
+        ys[n++] = evaluate(context, slot, x);
+        return new SampledCurve(xs, ys, n, true);
+    }
+
+    /**
+     * Identifies a function in tile keys; the same source plotted against
+     * another variable is a different function.
+     */
+    static String tileId(Expression function, String variable) {
+        return variable + ':' + function.source();
+    }
+
+    /**
+     * Returns the samples of one tile, computing and caching them if needed.
+     */
+    double[] tile(String id, Expression.Context context, int slot, int level, long index) {
+        TileKey key = new TileKey(id, level, index);
+        double[] samples;
+        double[] children0;
+        double[] children1;
+        double[] parent;
+        synchronized (tiles) {
+            samples = tiles.get(key);
+            if (samples != null) {
+                hits.increment();
+                return samples;
+            }
+            children0 = tiles.get(new TileKey(id, level - 1, 2 * index));
+            children1 = tiles.get(new TileKey(id, level - 1, 2 * index + 1));
+            parent = tiles.get(new TileKey(id, level + 1, Math.floorDiv(index, 2)));
+        }
+        misses.increment();
+
+        // Compute outside the lock; another thread may race us to the same tile
+        samples = new double[TILE_SAMPLES];
+        if (children0 != null && children1 != null) {
+            int half = TILE_SAMPLES / 2;
+            for (int k = 0; k < half; k++) {
+                samples[k] = children0[2 * k];
+                samples[half + k] = children1[2 * k];
+            }
+        } else {
+            int offset = (int) Math.floorMod(index, 2L) * (TILE_SAMPLES / 2);
+            for (int k = 0; k < TILE_SAMPLES; k++) {
+                if (parent != null && k % 2 == 0) {
+                    samples[k] = parent[offset + k / 2];
+                } else {
+                    samples[k] = evaluate(context, slot, sampleX(level, index, k));
+                }
+            }
+        }
+
+        synchronized (tiles) {
+            double[] existing = tiles.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            tiles.put(key, samples);
+            Iterator<double[]> eldest = tiles.values().iterator();
+            while (tiles.size() * TILE_BYTES > maximumBytes) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+        return samples;
+    }
+
+    private double evaluate(Expression.Context context, int slot, double x) {
+        evaluations.increment();
+        if (slot >= 0) {
+            context.set(slot, x);
+        }
+        return context.evaluate();
+    }
+
+    /**
+     * Chooses the level whose sample spacing is the largest power of two not above the pixel width.
+     */
+    static int levelFor(double pixelWidth) {
+        return Math.getExponent(pixelWidth) + SAMPLE_SHIFT;
+    }
+
+    /**
+     * @return the exact x position of sample k of a tile
+     */
+    static double sampleX(int level, long index, int k) {
+        return Math.scalb((double) (index * TILE_SAMPLES + k), level - SAMPLE_SHIFT);
+    }
+
+    /**
+     * Removes every cached tile. The counters are left untouched.
+     */
+    public void clear() {
+        synchronized (tiles) {
+            tiles.clear();
+        }
+    }
+
+    /**
+     * @return the number of cached tiles
+     */
+    public int size() {
+        synchronized (tiles) {
+            return tiles.size();
+        }
+    }
+
+    /**
+     * @return the approximate memory held by cached tiles, in bytes
+     */
+    public long estimatedBytes() {
+        return size() * TILE_BYTES;
+    }
+
+    /**
+     * @return the number of tile requests answered from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of tile requests that had to build the tile
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of tiles evicted to respect the memory cap
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of function evaluations performed to build tiles
+     */
+    public long evaluationCount() {
+        return evaluations.sum();
+    }
+
+    private static final class TileKey {
+        final String id;
+        final int level;
+        final long index;
+
+        TileKey(String id, int level, long index) {
+            this.id = id;
+            this.level = level;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) o;
+            return level == other.level && index == other.index && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, level, index);
+        }
+    }
+}
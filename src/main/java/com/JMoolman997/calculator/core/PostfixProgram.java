@@ -0,0 +1,182 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.Arrays;
+
+/**
+ * An expression compiled to a flat postfix instruction stream.
+ * The program is immutable: its code, constant pool and variable layout
+ * never change after compilation, so one program can be shared by any number
+ * of {@link StackMachine}s.
+ */
+final class PostfixProgram {
+    final int[] code;
+    final double[] constants;
+    final VariableLayout layout;
+    final int maxStackDepth;
+
+    PostfixProgram(int[] code, double[] constants, VariableLayout layout, int maxStackDepth) {
+        this.code = code;
+        this.constants = constants;
+        this.layout = layout;
+        this.maxStackDepth = maxStackDepth;
+    }
+
+    /**
+     * Compiles a syntax tree into a postfix program whose layout holds the
+     * variables the tree uses, in order of first appearance.
+     *
+     * @param ast the root of the tree to compile
+     * @return the compiled program
+     * @throws RuntimeException if the tree uses an unknown operator or function
+     */
+    static PostfixProgram compile(ASTNode ast) {
+        return compile(ast, VariableLayout.of(ast));
+    }
+
+    /**
+     * Compiles a syntax tree into a postfix program reading variables from the given layout.
+     *
+     * @param ast the root of the tree to compile
+     * @param layout the frame layout to resolve variables against
+     * @return the compiled program
+     * @throws RuntimeException if the tree uses an unknown operator, function or variable
+     */
+    static PostfixProgram compile(ASTNode ast, VariableLayout layout) {
+        return new PostfixCompiler(layout).compile(ast);
+    }
+
+    /**
+     * Returns the slot a variable is read from.
+     *
+     * @param name the variable name
+     * @return the slot index, or -1 if the layout does not contain the variable
+     */
+    int slotOf(String name) {
+        return layout.slotOf(name);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int pc = 0; pc < code.length; pc++) {
+            int opcode = code[pc];
+            builder.append(Opcodes.name(opcode));
+            if (opcode == Opcodes.CONST) {
+                builder.append(' ').append(constants[code[++pc]]);
+            } else if (opcode == Opcodes.LOAD) {
+                builder.append(' ').append(layout.name(code[++pc]));
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
+
+/**
+ * Walks a syntax tree in postorder and emits the matching instructions.
+ */
+class PostfixCompiler implements ASTVisitor<Void> {
+    private int[] code = new int[16];
+    private int codeLength = 0;
+    private double[] constants = new double[4];
+    private int constantCount = 0;
+    private final VariableLayout layout;
+    private int depth = 0;
+    private int maxDepth = 0;
+
+    PostfixCompiler(VariableLayout layout) {
+        this.layout = layout;
+    }
+
+    PostfixProgram compile(ASTNode ast) {
+        ast.accept(this);
+        return new PostfixProgram(
+            Arrays.copyOf(code, codeLength),
+            Arrays.copyOf(constants, constantCount),
+            layout,
+            maxDepth);
+    }
+
+    @Override
+    public Void visitNumberNode(NumberNode node) {
+        emit(Opcodes.CONST, 1);
+        emitOperand(constantSlot(node.value));
+        return null;
+    }
+
+    @Override
+    public Void visitVariableNode(VariableNode node) {
+        emit(Opcodes.LOAD, 1);
+        emitOperand(variableSlot(node.name));
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryOpNode(BinaryOpNode node) {
+        int opcode = Opcodes.binary(node);
+        for (ASTNode child : node.getChildren()) {
+            child.accept(this);
+        }
+        emit(opcode, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryOpNode(UnaryOpNode node) {
+        int opcode = Opcodes.unary(node);
+        node.getChildren().get(0).accept(this);
+        emit(opcode, 0);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionNode(FunctionNode node) {
+        int opcode = Opcodes.function(node);
+        for (ASTNode argument : node.getChildren()) {
+            argument.accept(this);
+        }
+        emit(opcode, 1 - Opcodes.arity(opcode));
+        return null;
+    }
+
+    /**
+     * Appends an instruction and tracks the resulting stack depth.
+     *
+     * @param opcode the instruction opcode
+     * @param stackEffect the net change in stack depth caused by the instruction
+     */
+    private void emit(int opcode, int stackEffect) {
+        emitOperand(opcode);
+        depth += stackEffect;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private void emitOperand(int value) {
+        if (codeLength == code.length) {
+            code = Arrays.copyOf(code, codeLength * 2);
+        }
+        code[codeLength++] = value;
+    }
+
+    private int constantSlot(double value) {
+        long bits = Double.doubleToLongBits(value);
+        for (int i = 0; i < constantCount; i++) {
+            if (Double.doubleToLongBits(constants[i]) == bits) {
+                return i;
+            }
+        }
+        if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        }
+        constants[constantCount] = value;
+        return constantCount++;
+    }
+
+    private int variableSlot(String name) {
+        int slot = layout.slotOf(name);
+        if (slot < 0) {
+            throw new RuntimeException("Undefined variable: " + name);
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,51 @@
+package com.JMoolman997.calculator.core;
+
+/**
+ * An immutable polyline sampled from a function of one variable.
+ * Points are ordered by x. A point whose y is not finite is not drawn and
+ * breaks the line, which is how gaps in the domain and jumps across
+ * asymptotes are represented.
+ */
+public final class SampledCurve {
+    private final double[] xs;
+    private final double[] ys;
+    private final int size;
+    private final boolean complete;
+
+    SampledCurve(double[] xs, double[] ys, int size, boolean complete) {
+        this.xs = xs;
+        this.ys = ys;
+        this.size = size;
+        this.complete = complete;
+    }
+
+    /**
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i a point index
+     * @return the x coordinate of the point
+     */
+    public double x(int i) {
+        return xs[i];
+    }
+
+    /**
+     * @param i a point index
+     * @return the y coordinate of the point, or a non-finite value where the line breaks
+     */
+    public double y(int i) {
+        return ys[i];
+    }
+
+    /**
+     * @return true if refinement has finished, false for an intermediate, coarser curve
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
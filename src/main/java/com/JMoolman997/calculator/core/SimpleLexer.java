@@ -34,6 +34,13 @@ public class SimpleLexer implements Lexer {
      * @throws RuntimeException if an invalid token or unexpected character is encountered
      */    
     public List<Token> tokenize() {
+        long start = EngineMetrics.start();
+        List<Token> tokens = scan();
+        EngineMetrics.LEX.record(start);
+        return tokens;
+    }
+
+    private List<Token> scan() {
         List<Token> tokens = new ArrayList<>();
         StringBuilder currentTokenBuilder = new StringBuilder();
 
@@ -0,0 +1,165 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An optimizer pass that folds constant subtrees and removes algebraic identities.
+ * Only rewrites that give bit-for-bit the same IEEE 754 result for every
+ * input, including NaN, infinities and signed zeros, are applied:
+ * <ul>
+ *   <li>{@code x * 1}, {@code 1 * x}, {@code x / 1} and {@code x ^ 1} become {@code x}</li>
+ *   <li>{@code x ^ 0} becomes {@code 1} (Math.pow returns 1 even for NaN)</li>
+ *   <li>{@code x - 0}, {@code x + -0} and {@code -0 + x} become {@code x}</li>
+ *   <li>{@code x * -1} and {@code -1 * x} become {@code -x}</li>
+ *   <li>{@code --x} becomes {@code x}</li>
+ * </ul>
+ * {@code x + 0} is deliberately kept, since it turns -0 into +0. The input
+ * tree is never modified; a new tree is built instead.
+ */
+class Simplifier implements ASTVisitor<ASTNode> {
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+    private static final long POSITIVE_ZERO = Double.doubleToRawLongBits(0.0);
+
+    private int eliminatedNodes = 0;
+
+    /**
+     * Simplifies a tree.
+     *
+     * @param ast the root of the tree to simplify
+     * @return the root of the simplified tree
+     */
+    ASTNode simplify(ASTNode ast) {
+        ASTNode simplified = ast.accept(this);
+        eliminatedNodes += countNodes(ast) - countNodes(simplified);
+        return simplified;
+    }
+
+    /**
+     * @return the number of nodes removed by all simplifications so far
+     */
+    int eliminatedNodes() {
+        return eliminatedNodes;
+    }
+
+    @Override
+    public ASTNode visitNumberNode(NumberNode node) {
+        return new NumberNode(node.value);
+    }
+
+    @Override
+    public ASTNode visitVariableNode(VariableNode node) {
+        VariableNode copy = new VariableNode(node.name);
+        copy.slot = node.slot;
+        return copy;
+    }
+
+    @Override
+    public ASTNode visitBinaryOpNode(BinaryOpNode node) {
+        int opcode = Opcodes.binary(node);
+        ASTNode left = node.getChildren().get(0).accept(this);
+        ASTNode right = node.getChildren().get(1).accept(this);
+
+        if (left instanceof NumberNode && right instanceof NumberNode) {
+            return new NumberNode(Opcodes.apply(opcode, ((NumberNode) left).value, ((NumberNode) right).value));
+        }
+        switch (opcode) {
+            case Opcodes.MUL:
+                if (isConstant(right, 1.0)) {
+                    return left;
+                } else if (isConstant(left, 1.0)) {
+                    return right;
+                } else if (isConstant(right, -1.0)) {
+                    return new UnaryOpNode("-", left);
+                } else if (isConstant(left, -1.0)) {
+                    return new UnaryOpNode("-", right);
+                }
+                break;
+            case Opcodes.DIV:
+                if (isConstant(right, 1.0)) {
+                    return left;
+                }
+                break;
+            case Opcodes.POW:
+                if (isConstant(right, 1.0)) {
+                    return left;
+                } else if (isConstant(right, 0.0)) {
+                    return new NumberNode(1.0);
+                }
+                break;
+            case Opcodes.ADD:
+                if (hasBits(right, NEGATIVE_ZERO)) {
+                    return left;
+                } else if (hasBits(left, NEGATIVE_ZERO)) {
+                    return right;
+                }
+                break;
+            case Opcodes.SUB:
+                if (hasBits(right, POSITIVE_ZERO)) {
+                    return left;
+                }
+                break;
+            default:
+                break;
+        }
+        return new BinaryOpNode(node.operator, left, right);
+    }
+
+    @Override
+    public ASTNode visitUnaryOpNode(UnaryOpNode node) {
+        int opcode = Opcodes.unary(node);
+        ASTNode operand = node.getChildren().get(0).accept(this);
+
+        if (operand instanceof NumberNode) {
+            return new NumberNode(Opcodes.apply(opcode, ((NumberNode) operand).value));
+        }
+        if (operand instanceof UnaryOpNode && ((UnaryOpNode) operand).opcode == opcode) {
+            // Negation is its own inverse
+            return operand.getChildren().get(0);
+        }
+        return new UnaryOpNode(node.operator, operand);
+    }
+
+    @Override
+    public ASTNode visitFunctionNode(FunctionNode node) {
+        List<ASTNode> arguments = new ArrayList<>(node.getChildren().size());
+        boolean constant = true;
+        for (ASTNode argument : node.getChildren()) {
+            ASTNode simplified = argument.accept(this);
+            constant &= simplified instanceof NumberNode;
+            arguments.add(simplified);
+        }
+
+        int opcode;
+        try {
+            opcode = Opcodes.function(node);
+        } catch (RuntimeException e) {
+            // Leave unknown calls in place so the evaluator reports them as usual
+            return new FunctionNode(node.name, arguments);
+        }
+        if (constant) {
+            double a = ((NumberNode) arguments.get(0)).value;
+            if (Opcodes.arity(opcode) == 2) {
+                return new NumberNode(Opcodes.apply(opcode, a, ((NumberNode) arguments.get(1)).value));
+            }
+            return new NumberNode(Opcodes.apply(opcode, a));
+        }
+        return new FunctionNode(node.name, arguments);
+    }
+
+    private static boolean isConstant(ASTNode node, double value) {
+        return node instanceof NumberNode && ((NumberNode) node).value == value;
+    }
+
+    private static boolean hasBits(ASTNode node, long bits) {
+        return node instanceof NumberNode && Double.doubleToRawLongBits(((NumberNode) node).value) == bits;
+    }
+
+    private static int countNodes(ASTNode node) {
+        int count = 1;
+        for (ASTNode child : node.getChildren()) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,116 @@
+package com.JMoolman997.calculator.core;
+
+/**
+ * Executes a {@link PostfixProgram} on a primitive operand stack.
+ * The stack is allocated once, sized to the program's maximum depth, so
+ * evaluation itself allocates nothing. A machine is not thread-safe; give
+ * each thread its own machine for a shared program.
+ */
+class StackMachine {
+    private final PostfixProgram program;
+    private final double[] stack;
+    private int calls;
+
+    StackMachine(PostfixProgram program) {
+        this.program = program;
+        this.stack = new double[Math.max(program.maxStackDepth, 1)];
+    }
+
+    /**
+     * Evaluates the program.
+     *
+     * @param variables the variable values, indexed by the program's variable slots
+     * @return the value of the expression
+     */
+    double evaluate(double[] variables) {
+        if (EngineMetrics.ENABLED && EngineMetrics.sampled(++calls)) {
+            long start = System.nanoTime();
+            double value = run(variables);
+            EngineMetrics.EVALUATE.recordSample(start);
+            return value;
+        }
+        return run(variables);
+    }
+
+    private double run(double[] variables) {
+        final int[] code = program.code;
+        final double[] constants = program.constants;
+        final double[] stack = this.stack;
+        int sp = -1;
+        int pc = 0;
+
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case Opcodes.CONST:
+                    stack[++sp] = constants[code[pc++]];
+                    break;
+                case Opcodes.LOAD:
+                    stack[++sp] = variables[code[pc++]];
+                    break;
+                case Opcodes.NEG:
+                    stack[sp] = -stack[sp];
+                    break;
+                case Opcodes.ADD:
+                    sp--;
+                    stack[sp] = stack[sp] + stack[sp + 1];
+                    break;
+                case Opcodes.SUB:
+                    sp--;
+                    stack[sp] = stack[sp] - stack[sp + 1];
+                    break;
+                case Opcodes.MUL:
+                    sp--;
+                    stack[sp] = stack[sp] * stack[sp + 1];
+                    break;
+                case Opcodes.DIV:
+                    sp--;
+                    stack[sp] = stack[sp] / stack[sp + 1];
+                    break;
+                case Opcodes.POW:
+                    sp--;
+                    stack[sp] = Math.pow(stack[sp], stack[sp + 1]);
+                    break;
+                case Opcodes.SIN:
+                    stack[sp] = Math.sin(stack[sp]);
+                    break;
+                case Opcodes.COS:
+                    stack[sp] = Math.cos(stack[sp]);
+                    break;
+                case Opcodes.TAN:
+                    stack[sp] = Math.tan(stack[sp]);
+                    break;
+                case Opcodes.CSC:
+                    stack[sp] = 1 / Math.sin(stack[sp]);
+                    break;
+                case Opcodes.SEC:
+                    stack[sp] = 1 / Math.cos(stack[sp]);
+                    break;
+                case Opcodes.COT:
+                    stack[sp] = 1 / Math.tan(stack[sp]);
+                    break;
+                case Opcodes.ASIN:
+                    stack[sp] = Math.asin(stack[sp]);
+                    break;
+                case Opcodes.ACOS:
+                    stack[sp] = Math.acos(stack[sp]);
+                    break;
+                case Opcodes.ATAN:
+                    stack[sp] = Math.atan(stack[sp]);
+                    break;
+                case Opcodes.ABS:
+                    stack[sp] = Math.abs(stack[sp]);
+                    break;
+                case Opcodes.SQRT:
+                    stack[sp] = Math.sqrt(stack[sp]);
+                    break;
+                default:
+                    throw new IllegalStateException("Bad opcode at " + (pc - 1) + ": " + code[pc - 1]);
+            }
+        }
+        return stack[0];
+    }
+
+    PostfixProgram program() {
+        return program;
+    }
+}
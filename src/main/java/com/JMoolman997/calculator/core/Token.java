@@ -150,9 +150,30 @@ class ConstantToken extends AbstractToken {
         return new ConstantToken(input.toLowerCase());
     }
 
-    // public Double getValue() {
-    //     return CONSTANTS.get(this.value);
-    // }
+    /**
+     * Checks whether the given name is a known constant, ignoring case.
+     *
+     * @param name the name to look up
+     * @return true if the name denotes a constant
+     */
+    static boolean isConstant(String name) {
+        return CONSTANTS.containsKey(name.toLowerCase());
+    }
+
+    /**
+     * Returns the numeric value of a named constant, ignoring case.
+     *
+     * @param name the name of the constant
+     * @return the value of the constant
+     * @throws RuntimeException if the name is not a known constant
+     */
+    static double valueOf(String name) {
+        Double value = CONSTANTS.get(name.toLowerCase());
+        if (value == null) {
+            throw new RuntimeException("Unknown constant: " + name);
+        }
+        return value;
+    }
 }
 
 class ParenToken extends AbstractToken {
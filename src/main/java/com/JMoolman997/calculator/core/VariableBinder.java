@@ -0,0 +1,79 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves every variable reference in a tree to a frame slot.
+ * Binding copies the tree, so the source tree (which may be shared, for
+ * example through an {@link ExpressionCache}) is never modified. A variable
+ * that is missing from the layout is reported here rather than during
+ * evaluation.
+ */
+class VariableBinder implements ASTVisitor<ASTNode> {
+    private final VariableLayout layout;
+
+    private VariableBinder(VariableLayout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * Binds a tree to a layout holding the variables it uses, in order of first appearance.
+     *
+     * @param ast the root of the tree to bind
+     * @return the bound expression
+     */
+    static BoundExpression bind(ASTNode ast) {
+        return bind(ast, VariableLayout.of(ast));
+    }
+
+    /**
+     * Binds a tree to the given layout.
+     *
+     * @param ast the root of the tree to bind
+     * @param layout the frame layout to resolve variables against
+     * @return the bound expression
+     * @throws RuntimeException if the tree uses a variable the layout does not contain
+     */
+    static BoundExpression bind(ASTNode ast, VariableLayout layout) {
+        ASTNode bound = ast.accept(new VariableBinder(layout));
+        bound.freeze();
+        return new BoundExpression(bound, layout);
+    }
+
+    @Override
+    public ASTNode visitNumberNode(NumberNode node) {
+        return new NumberNode(node.value);
+    }
+
+    @Override
+    public ASTNode visitVariableNode(VariableNode node) {
+        int slot = layout.slotOf(node.name);
+        if (slot < 0) {
+            throw new RuntimeException("Undefined variable: " + node.name);
+        }
+        VariableNode bound = new VariableNode(node.name);
+        bound.slot = slot;
+        return bound;
+    }
+
+    @Override
+    public ASTNode visitBinaryOpNode(BinaryOpNode node) {
+        List<ASTNode> children = node.getChildren();
+        return new BinaryOpNode(node.operator, children.get(0).accept(this), children.get(1).accept(this));
+    }
+
+    @Override
+    public ASTNode visitUnaryOpNode(UnaryOpNode node) {
+        return new UnaryOpNode(node.operator, node.getChildren().get(0).accept(this));
+    }
+
+    @Override
+    public ASTNode visitFunctionNode(FunctionNode node) {
+        List<ASTNode> arguments = new ArrayList<>(node.getChildren().size());
+        for (ASTNode argument : node.getChildren()) {
+            arguments.add(argument.accept(this));
+        }
+        return new FunctionNode(node.name, arguments);
+    }
+}
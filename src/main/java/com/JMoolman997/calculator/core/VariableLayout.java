@@ -0,0 +1,105 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The mapping from variable names to slots in an evaluation frame.
+ * A frame is a plain double[] in which each variable's value is stored at
+ * its slot. Layouts are immutable.
+ */
+final class VariableLayout {
+    private final String[] names;
+    private final Map<String, Integer> slots;
+
+    private VariableLayout(String[] names) {
+        this.names = names;
+        this.slots = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            if (slots.put(names[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate variable: " + names[i]);
+            }
+        }
+    }
+
+    /**
+     * Creates a layout with the given variables in slot order.
+     *
+     * @param names the variable names
+     * @return the layout
+     * @throws IllegalArgumentException if a name appears twice
+     */
+    static VariableLayout of(String... names) {
+        return new VariableLayout(names.clone());
+    }
+
+    /**
+     * Creates a layout for the variables a tree uses, in order of first appearance.
+     *
+     * @param ast the root of the tree
+     * @return the layout
+     */
+    static VariableLayout of(ASTNode ast) {
+        Set<String> names = new LinkedHashSet<>();
+        collectNames(ast, names);
+        return new VariableLayout(names.toArray(new String[0]));
+    }
+
+    private static void collectNames(ASTNode node, Set<String> names) {
+        if (node instanceof VariableNode) {
+            names.add(((VariableNode) node).name);
+        }
+        for (ASTNode child : node.getChildren()) {
+            collectNames(child, names);
+        }
+    }
+
+    /**
+     * @param name a variable name
+     * @return the slot of the variable, or -1 if the layout does not contain it
+     */
+    int slotOf(String name) {
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @param slot a slot index
+     * @return the name of the variable stored at the slot
+     */
+    String name(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * @return the variable names in slot order
+     */
+    List<String> names() {
+        return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(names)));
+    }
+
+    /**
+     * @return the number of slots in a frame
+     */
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * @return a new zero-filled frame for this layout
+     */
+    double[] newFrame() {
+        return new double[names.length];
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(names);
+    }
+}
@@ -0,0 +1,72 @@
+package com.JMoolman997.calculator.core;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels built on the incubating Vector API.
+ * Only operations that are exactly rounded in IEEE 754 (the four
+ * arithmetic operators, negation, absolute value and square root) are
+ * vectorised; the transcendental functions are left to {@link ScalarKernels}
+ * so that both implementations give identical results. This class is only
+ * loaded when the jdk.incubator.vector module is present.
+ */
+class VectorKernels extends ScalarKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void unary(int opcode, double[] a, int length) {
+        VectorOperators.Unary operator;
+        switch (opcode) {
+            case Opcodes.NEG:
+                operator = VectorOperators.NEG;
+                break;
+            case Opcodes.ABS:
+                operator = VectorOperators.ABS;
+                break;
+            case Opcodes.SQRT:
+                operator = VectorOperators.SQRT;
+                break;
+            default:
+                super.unary(opcode, a, length);
+                return;
+        }
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, i).lanewise(operator).intoArray(a, i);
+        }
+        super.unary(opcode, a, i, length);
+    }
+
+    @Override
+    public void binary(int opcode, double[] a, double[] b, int length) {
+        VectorOperators.Binary operator;
+        switch (opcode) {
+            case Opcodes.ADD:
+                operator = VectorOperators.ADD;
+                break;
+            case Opcodes.SUB:
+                operator = VectorOperators.SUB;
+                break;
+            case Opcodes.MUL:
+                operator = VectorOperators.MUL;
+                break;
+            case Opcodes.DIV:
+                operator = VectorOperators.DIV;
+                break;
+            default:
+                super.binary(opcode, a, b, length);
+                return;
+        }
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector left = DoubleVector.fromArray(SPECIES, a, i);
+            DoubleVector right = DoubleVector.fromArray(SPECIES, b, i);
+            left.lanewise(operator, right).intoArray(a, i);
+        }
+        super.binary(opcode, a, b, i, length);
+    }
+}
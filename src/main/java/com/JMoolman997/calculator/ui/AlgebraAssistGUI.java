@@ -1,6 +1,8 @@
 package com.JMoolman997.calculator.ui;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -11,8 +13,13 @@ public class AlgebraAssistGUI extends JFrame {
     private JButton[] numberButtons;
     private JButton addButton, subtractButton, multiplyButton, divideButton, equalsButton, clearButton;
     private JPanel buttonPanel;
+    private JLabel previewLabel;
 
-    private double firstNumber;
+    // Formulas are evaluated off the EDT; the preview follows typing, debounced
+    private EvaluationPipeline previewPipeline;
+    private EvaluationPipeline resultPipeline;
+
+    private String firstOperand;
     private char operation;
 
     public AlgebraAssistGUI() {
@@ -33,6 +40,12 @@ public class AlgebraAssistGUI extends JFrame {
         displayField.setEditable(true);
         displayField.setHorizontalAlignment(SwingConstants.RIGHT);
 
+        previewLabel = new JLabel(" ");
+        previewLabel.setHorizontalAlignment(SwingConstants.RIGHT);
+        previewPipeline = new EvaluationPipeline(result ->
+            previewLabel.setText(result.isError() ? " " : "= " + EvaluationPipeline.format(result.getValue())));
+        resultPipeline = new EvaluationPipeline(this::showResult);
+
         addButton = new JButton("+");
         subtractButton = new JButton("-");
         multiplyButton = new JButton("*");
@@ -50,7 +63,10 @@ public class AlgebraAssistGUI extends JFrame {
     }
 
     private void setupLayout() {
-        add(displayField, BorderLayout.NORTH);
+        JPanel displayPanel = new JPanel(new BorderLayout());
+        displayPanel.add(displayField, BorderLayout.NORTH);
+        displayPanel.add(previewLabel, BorderLayout.SOUTH);
+        add(displayPanel, BorderLayout.NORTH);
 
         buttonPanel.add(numberButtons[7]);
         buttonPanel.add(numberButtons[8]);
@@ -89,6 +105,45 @@ public class AlgebraAssistGUI extends JFrame {
         divideButton.addActionListener(actionListener);
         equalsButton.addActionListener(actionListener);
         clearButton.addActionListener(actionListener);
+
+        displayField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                displayChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                displayChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                displayChanged();
+            }
+        });
+    }
+
+    private void displayChanged() {
+        String text = displayField.getText();
+        if (text.isBlank()) {
+            previewPipeline.cancel();
+            previewLabel.setText(" ");
+        } else {
+            previewPipeline.submit(text);
+        }
+    }
+
+    private void showResult(EvaluationPipeline.Result result) {
+        if (result.isError()) {
+            JOptionPane.showMessageDialog(this, result.getError(), "Error", JOptionPane.ERROR_MESSAGE);
+            if (EvaluationPipeline.DIVIDE_BY_ZERO.equals(result.getError())) {
+                displayField.setText(EvaluationPipeline.format(0));
+            }
+        } else {
+            // Written so that the lexer can read it back as the next operand
+            displayField.setText(EvaluationPipeline.format(result.getValue()));
+        }
     }
 
     private class CalculatorActionListener implements ActionListener {
@@ -101,31 +156,18 @@ public class AlgebraAssistGUI extends JFrame {
             } else if (command.charAt(0) == 'C') {
                 displayField.setText("");
             } else if (command.charAt(0) == '=') {
-                double secondNumber = Double.parseDouble(displayField.getText());
-                double result = 0;
-
-                switch (operation) {
-                    case '+':
-                        result = firstNumber + secondNumber;
-                        break;
-                    case '-':
-                        result = firstNumber - secondNumber;
-                        break;
-                    case '*':
-                        result = firstNumber * secondNumber;
-                        break;
-                    case '/':
-                        if (secondNumber != 0) {
-                            result = firstNumber / secondNumber;
-                        } else {
-                            JOptionPane.showMessageDialog(AlgebraAssistGUI.this, "Cannot divide by zero!", "Error", JOptionPane.ERROR_MESSAGE);
-                        }
-                        break;
+                // The arithmetic itself runs off the EDT; showResult updates the display
+                String operand = displayField.getText();
+                if (operation == 0) {
+                    resultPipeline.submitNow(operand);
+                } else {
+                    // Both operands are formulas; a bad one is reported by showResult
+                    resultPipeline.submitNow(firstOperand, operation, operand);
                 }
-
-                displayField.setText(Double.toString(result));
+                operation = 0;
             } else {
-                firstNumber = Double.parseDouble(displayField.getText());
+                // Kept as typed and evaluated with the second operand, off the EDT
+                firstOperand = displayField.getText();
                 operation = command.charAt(0);
                 displayField.setText("");
             }
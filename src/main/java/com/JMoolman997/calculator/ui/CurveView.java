@@ -0,0 +1,217 @@
+package com.JMoolman997.calculator.ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Path2D;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.JMoolman997.calculator.core.AdaptiveSampler;
+import com.JMoolman997.calculator.core.Expression;
+import com.JMoolman997.calculator.core.PlotTileCache;
+import com.JMoolman997.calculator.core.SampledCurve;
+
+/**
+ * Plots a function of x. Sampling runs on background workers, never on the
+ * event dispatch thread: every change of function, view or size starts a new
+ * sampling job and cancels the one in progress. Each job first publishes a
+ * curve at one sample per pixel from a shared tile cache, so after a pan or
+ * zoom only the newly exposed part of the range is evaluated. That curve
+ * then seeds the adaptive refinement, which evaluates more points only
+ * around sharp bends, domain edges and asymptotes, and the curve is
+ * redrawn after every refinement pass.
+ * <p>
+ * Drag to pan and use the mouse wheel to zoom.
+ */
+public class CurveView extends JComponent {
+    private static final int MAX_DEPTH = 12;
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(
+        Math.max(1, Runtime.getRuntime().availableProcessors() - 1), runnable -> {
+            Thread thread = new Thread(runnable, "curve-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    private static final PlotTileCache TILES = new PlotTileCache(32L << 20);
+
+    // Bumped on every change; a job only publishes while its generation is current
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> job;
+
+    private Expression function;
+    private double xMin = -10, xMax = 10, yMin = -10, yMax = 10;
+    private SampledCurve curve;
+    private Point dragStart;
+
+    public CurveView() {
+        setPreferredSize(new Dimension(400, 300));
+        setBackground(Color.WHITE);
+        setOpaque(true);
+
+        MouseAdapter navigation = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragStart == null || getWidth() == 0 || getHeight() == 0) {
+                    return;
+                }
+                double dx = (e.getX() - dragStart.x) * (xMax - xMin) / getWidth();
+                double dy = (e.getY() - dragStart.y) * (yMax - yMin) / getHeight();
+                dragStart = e.getPoint();
+                setView(xMin - dx, xMax - dx, yMin + dy, yMax + dy);
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                double factor = Math.pow(1.1, e.getPreciseWheelRotation());
+                double x = toX(e.getX());
+                double y = toY(e.getY());
+                setView(x + (xMin - x) * factor, x + (xMax - x) * factor,
+                    y + (yMin - y) * factor, y + (yMax - y) * factor);
+            }
+        };
+        addMouseListener(navigation);
+        addMouseMotionListener(navigation);
+        addMouseWheelListener(navigation);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                resample();
+            }
+        });
+    }
+
+    /**
+     * Plots a function of x, or clears the plot if function is null.
+     *
+     * @param function the function to plot; it may use only the variable x
+     */
+    public void setFunction(Expression function) {
+        this.function = function;
+        this.curve = null;
+        resample();
+    }
+
+    /**
+     * Changes the visible region.
+     */
+    public void setView(double xMin, double xMax, double yMin, double yMax) {
+        if (!(xMin < xMax) || !(yMin < yMax)) {
+            return;
+        }
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.yMin = yMin;
+        this.yMax = yMax;
+        resample();
+    }
+
+    /**
+     * Cancels the current job and, if there is anything to plot, starts a new one.
+     * Must be called on the event dispatch thread.
+     */
+    private void resample() {
+        final long current = generation.incrementAndGet();
+        if (job != null) {
+            job.cancel(true);
+            job = null;
+        }
+        repaint();
+        if (function == null || getWidth() == 0 || getHeight() == 0) {
+            return;
+        }
+
+        final Expression target = function;
+        final double x0 = xMin, x1 = xMax;
+        final int pixels = getWidth();
+        // Half a pixel of the current view
+        AdaptiveSampler sampler = new AdaptiveSampler(0.5 * (yMax - yMin) / getHeight(), MAX_DEPTH);
+        job = WORKERS.submit(() -> {
+            try {
+                Consumer<SampledCurve> publish = snapshot -> SwingUtilities.invokeLater(() -> {
+                    if (generation.get() == current) {
+                        curve = snapshot;
+                        repaint();
+                    }
+                });
+                SampledCurve tiled = TILES.sample(target, "x", x0, x1, pixels);
+                publish.accept(tiled);
+                sampler.refine(target, "x", tiled,
+                    () -> generation.get() != current || Thread.currentThread().isInterrupted(),
+                    publish);
+            } catch (RuntimeException e) {
+                // The function cannot be plotted against x; leave the plot empty
+            }
+        });
+    }
+
+    private double toX(int px) {
+        return xMin + px * (xMax - xMin) / getWidth();
+    }
+
+    private double toY(int py) {
+        return yMax - py * (yMax - yMin) / getHeight();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setColor(getBackground());
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            double sx = getWidth() / (xMax - xMin);
+            double sy = getHeight() / (yMax - yMin);
+            g2.setColor(Color.LIGHT_GRAY);
+            if (xMin < 0 && xMax > 0) {
+                int px = (int) Math.round(-xMin * sx);
+                g2.drawLine(px, 0, px, getHeight());
+            }
+            if (yMin < 0 && yMax > 0) {
+                int py = (int) Math.round(yMax * sy);
+                g2.drawLine(0, py, getWidth(), py);
+            }
+
+            SampledCurve shown = curve;
+            if (shown == null) {
+                return;
+            }
+            // Clamp far off-screen points so that the path stays within float range
+            double limit = 4.0 * getHeight();
+            Path2D.Double path = new Path2D.Double();
+            boolean penDown = false;
+            for (int i = 0; i < shown.size(); i++) {
+                double y = shown.y(i);
+                if (!Double.isFinite(y)) {
+                    penDown = false;
+                    continue;
+                }
+                double px = (shown.x(i) - xMin) * sx;
+                double py = Math.max(-limit, Math.min(limit, (yMax - y) * sy));
+                if (penDown) {
+                    path.lineTo(px, py);
+                } else {
+                    path.moveTo(px, py);
+                    penDown = true;
+                }
+            }
+            g2.setColor(Color.BLUE);
+            g2.setStroke(new BasicStroke(1.5f));
+            g2.draw(path);
+        } finally {
+            g2.dispose();
+        }
+    }
+}
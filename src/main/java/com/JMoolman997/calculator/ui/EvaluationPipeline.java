@@ -0,0 +1,236 @@
+package com.JMoolman997.calculator.ui;
+
+import javax.swing.*;
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.JMoolman997.calculator.core.Expression;
+import com.JMoolman997.calculator.core.IncrementalParser;
+
+/**
+ * Evaluates formulas typed into the UI without blocking the event dispatch
+ * thread. Input changes are debounced, so a burst of keystrokes triggers
+ * only one evaluation. The evaluation runs on a background worker. Starting
+ * a new evaluation cancels the one in progress, and a superseded result is
+ * never delivered. Results are handed to the listener on the event dispatch
+ * thread. Successive formulas are usually small edits of each other, so
+ * each pipeline keeps its own {@link IncrementalParser} and only re-lexes
+ * and re-parses the part of the formula that changed.
+ * <p>
+ * All methods must be called on the event dispatch thread.
+ */
+public class EvaluationPipeline {
+    static final String DIVIDE_BY_ZERO = "Cannot divide by zero!";
+    static final int DEFAULT_DELAY_MILLIS = 150;
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "evaluation-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Consumer<Result> listener;
+    private final Timer debounce;
+    // Only ever used by jobs on the single worker thread
+    private final IncrementalParser parser = new IncrementalParser("");
+    // Bumped on every submission; a job only publishes while its generation is current
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> job;
+    private String pending;
+
+    /**
+     * Constructs an EvaluationPipeline with the default debounce delay.
+     *
+     * @param listener receives each result on the event dispatch thread
+     */
+    public EvaluationPipeline(Consumer<Result> listener) {
+        this(DEFAULT_DELAY_MILLIS, listener);
+    }
+
+    /**
+     * Constructs an EvaluationPipeline.
+     *
+     * @param delayMillis how long the input must stay unchanged before it is evaluated
+     * @param listener receives each result on the event dispatch thread
+     */
+    public EvaluationPipeline(int delayMillis, Consumer<Result> listener) {
+        this.listener = listener;
+        this.debounce = new Timer(delayMillis, e -> start(pending));
+        this.debounce.setRepeats(false);
+    }
+
+    /**
+     * Schedules a formula for evaluation once the input has been quiet for
+     * the debounce delay. Any earlier formula that has not produced a result
+     * yet is superseded.
+     *
+     * @param source the formula
+     */
+    public void submit(String source) {
+        pending = source;
+        generation.incrementAndGet();
+        debounce.restart();
+    }
+
+    /**
+     * Evaluates a formula straight away, superseding anything pending.
+     *
+     * @param source the formula
+     */
+    public void submitNow(String source) {
+        debounce.stop();
+        start(source);
+    }
+
+    /**
+     * Applies a calculator operation straight away, superseding anything
+     * pending. Both operands are formulas and are evaluated on the worker
+     * before the operation is applied.
+     *
+     * @param left the formula for the left operand
+     * @param operator one of + - * /
+     * @param right the formula for the right operand
+     */
+    public void submitNow(String left, char operator, String right) {
+        debounce.stop();
+        start(() -> {
+            parser.update(right);
+            return combine(evaluate(left), operator, evaluate(right, parser::compile));
+        });
+    }
+
+    /**
+     * Formats a value as a formula that evaluates back to it. Finite values
+     * are written out in plain decimal, since the lexer does not read
+     * exponents; NaN and the infinities keep their usual names.
+     *
+     * @param value the value to format
+     * @return the formatted value
+     */
+    static String format(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return Double.toString(value);
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Drops any pending or running evaluation without delivering a result.
+     */
+    public void cancel() {
+        debounce.stop();
+        generation.incrementAndGet();
+        if (job != null) {
+            job.cancel(true);
+            job = null;
+        }
+    }
+
+    private void start(String source) {
+        start(() -> {
+            parser.update(source);
+            return evaluate(source, parser::compile);
+        });
+    }
+
+    private void start(Supplier<Result> work) {
+        cancel();
+        final long current = generation.get();
+        job = WORKER.submit(() -> {
+            Result result = work.get();
+            SwingUtilities.invokeLater(() -> {
+                if (generation.get() == current) {
+                    job = null;
+                    listener.accept(result);
+                }
+            });
+        });
+    }
+
+    /**
+     * Compiles and evaluates a formula that uses no variables.
+     */
+    static Result evaluate(String source) {
+        return evaluate(source, () -> Expression.compile(source));
+    }
+
+    private static Result evaluate(String source, Supplier<Expression> compiler) {
+        try {
+            Expression expression = compiler.get();
+            if (!expression.variables().isEmpty()) {
+                return new Result(source, Double.NaN, "Undefined variable: " + expression.variables().get(0));
+            }
+            return new Result(source, expression.evaluate(new double[0]), null);
+        } catch (RuntimeException e) {
+            return new Result(source, Double.NaN, e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a calculator operation to two evaluated formulas.
+     */
+    static Result combine(Result leftResult, char operator, Result right) {
+        String source = "(" + leftResult.getSource() + ") " + operator + " (" + right.getSource() + ")";
+        if (leftResult.isError()) {
+            return new Result(source, Double.NaN, leftResult.getError());
+        }
+        if (right.isError()) {
+            return new Result(source, Double.NaN, right.getError());
+        }
+        double left = leftResult.getValue();
+        double value = right.getValue();
+        switch (operator) {
+            case '+':
+                return new Result(source, left + value, null);
+            case '-':
+                return new Result(source, left - value, null);
+            case '*':
+                return new Result(source, left * value, null);
+            case '/':
+                if (value == 0) {
+                    return new Result(source, Double.NaN, DIVIDE_BY_ZERO);
+                }
+                return new Result(source, left / value, null);
+            default:
+                return new Result(source, Double.NaN, "Unknown binary operator: " + operator);
+        }
+    }
+
+    /**
+     * The outcome of evaluating one formula: a value, or an error message.
+     */
+    public static final class Result {
+        private final String source;
+        private final double value;
+        private final String error;
+
+        Result(String source, double value, String error) {
+            this.source = source;
+            this.value = value;
+            this.error = error;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        /**
+         * @return the reason evaluation failed, or null if it succeeded
+         */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isError() {
+            return error != null;
+        }
+    }
+}
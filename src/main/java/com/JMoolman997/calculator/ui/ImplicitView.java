@@ -0,0 +1,136 @@
+package com.JMoolman997.calculator.ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.geom.Line2D;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.JMoolman997.calculator.core.Expression;
+import com.JMoolman997.calculator.core.ImplicitCurve;
+import com.JMoolman997.calculator.core.ImplicitPlotter;
+
+/**
+ * Plots the curve f(x, y) = 0. Plotting runs off the event dispatch thread
+ * and the plotter spreads each frame over row bands on the common pool; a
+ * change of function, view or size cancels the plot in progress, as in
+ * {@link CurveView}.
+ */
+public class ImplicitView extends JComponent {
+    // Coarse cells are about this many pixels wide, then quartered down to below a pixel
+    private static final int CELL_PIXELS = 16;
+    private static final int DEPTH = 5;
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "implicit-plotter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ImplicitPlotter PLOTTER = new ImplicitPlotter();
+
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> job;
+
+    private Expression function;
+    private double xMin = -10, xMax = 10, yMin = -10, yMax = 10;
+    private ImplicitCurve curve;
+
+    public ImplicitView() {
+        setPreferredSize(new Dimension(400, 300));
+        setBackground(Color.WHITE);
+        setOpaque(true);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                replot();
+            }
+        });
+    }
+
+    /**
+     * Plots f(x, y) = 0, or clears the plot if function is null.
+     *
+     * @param function the function; it may use only the variables x and y
+     */
+    public void setFunction(Expression function) {
+        this.function = function;
+        this.curve = null;
+        replot();
+    }
+
+    /**
+     * Changes the visible region.
+     */
+    public void setView(double xMin, double xMax, double yMin, double yMax) {
+        if (!(xMin < xMax) || !(yMin < yMax)) {
+            return;
+        }
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.yMin = yMin;
+        this.yMax = yMax;
+        replot();
+    }
+
+    private void replot() {
+        final long current = generation.incrementAndGet();
+        if (job != null) {
+            job.cancel(true);
+            job = null;
+        }
+        repaint();
+        if (function == null || getWidth() == 0 || getHeight() == 0) {
+            return;
+        }
+
+        final Expression target = function;
+        final double x0 = xMin, x1 = xMax, y0 = yMin, y1 = yMax;
+        final int columns = Math.max(1, getWidth() / CELL_PIXELS);
+        final int rows = Math.max(1, getHeight() / CELL_PIXELS);
+        job = WORKER.submit(() -> {
+            try {
+                ImplicitCurve result = PLOTTER.plot(target, "x", "y", x0, x1, y0, y1, columns, rows, DEPTH,
+                    () -> generation.get() != current || Thread.currentThread().isInterrupted());
+                if (result != null) {
+                    SwingUtilities.invokeLater(() -> {
+                        if (generation.get() == current) {
+                            curve = result;
+                            repaint();
+                        }
+                    });
+                }
+            } catch (RuntimeException e) {
+                // The function cannot be plotted against x and y; leave the plot empty
+            }
+        });
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setColor(getBackground());
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            ImplicitCurve shown = curve;
+            if (shown == null) {
+                return;
+            }
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(Color.RED);
+            g2.setStroke(new BasicStroke(1.5f));
+            double sx = getWidth() / (xMax - xMin);
+            double sy = getHeight() / (yMax - yMin);
+            Line2D.Double line = new Line2D.Double();
+            for (int i = 0; i < shown.segmentCount(); i++) {
+                line.setLine((shown.startX(i) - xMin) * sx, (yMax - shown.startY(i)) * sy,
+                    (shown.endX(i) - xMin) * sx, (yMax - shown.endY(i)) * sy);
+                g2.draw(line);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+}
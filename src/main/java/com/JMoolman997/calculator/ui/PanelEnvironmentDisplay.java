@@ -1,11 +1,146 @@
 package com.JMoolman997.calculator.ui;
 
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.JMoolman997.calculator.core.Environment;
+
 public class PanelEnvironmentDisplay extends DynamicPanel{
+    public static final String ENVIRONMENT_MODE = "environment";
+
+    // Definitions are applied one at a time, off the EDT
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "environment-updates");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Assigned from initializeModes, which runs inside the super constructor
+    private Environment environment;
+    private JTextField definitionField;
+    private JLabel statusLabel;
+    private DefaultTableModel model;
+    private JTable table;
+
     @Override
     protected void initializeModes() {
-        // TODO Auto-generated method stub
-        
+        environment = new Environment();
+        definitionField = new JTextField();
+        statusLabel = new JLabel(" ");
+        model = new DefaultTableModel(new Object[] {"Name", "Definition", "Value"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        table = new JTable(model);
+
+        // Each notification is built on the worker, then applied to the table on the EDT
+        environment.addListener(names -> {
+            List<Environment.Binding> bindings = new ArrayList<>(names.size());
+            for (String name : names) {
+                bindings.add(environment.binding(name));
+            }
+            SwingUtilities.invokeLater(() -> showChanges(names, bindings));
+        });
+
+        definitionField.addActionListener(e -> {
+            String definition = definitionField.getText();
+            if (!definition.isBlank()) {
+                WORKER.execute(() -> apply(() -> environment.define(definition), definition));
+            }
+        });
+        table.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0), "removeDefinition");
+        table.getActionMap().put("removeDefinition", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                int row = table.getSelectedRow();
+                if (row >= 0) {
+                    String name = (String) model.getValueAt(row, 0);
+                    WORKER.execute(() -> apply(() -> environment.remove(name), null));
+                }
+            }
+        });
+
+        JPanel inputPanel = new JPanel(new BorderLayout());
+        inputPanel.add(definitionField, BorderLayout.NORTH);
+        inputPanel.add(statusLabel, BorderLayout.SOUTH);
+        JPanel environmentPanel = new JPanel(new BorderLayout());
+        environmentPanel.add(inputPanel, BorderLayout.NORTH);
+        environmentPanel.add(new JScrollPane(table), BorderLayout.CENTER);
+        addMode(ENVIRONMENT_MODE, environmentPanel);
+    }
+
+    public Environment getEnvironment() {
+        return environment;
     }
 
+    /**
+     * Runs one update on the worker and reports a rejected definition in the status line.
+     *
+     * @param update the update to run
+     * @param definition the text to clear from the input once it is accepted, or null
+     */
+    private void apply(Runnable update, String definition) {
+        String error;
+        try {
+            update.run();
+            error = null;
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+        }
+        String message = error;
+        SwingUtilities.invokeLater(() -> {
+            if (message != null) {
+                statusLabel.setForeground(Color.RED);
+                statusLabel.setText(message);
+                return;
+            }
+            statusLabel.setText(" ");
+            if (definition != null && definition.equals(definitionField.getText())) {
+                definitionField.setText("");
+            }
+        });
+    }
 
+    private void showChanges(List<String> names, List<Environment.Binding> bindings) {
+        for (int i = 0; i < names.size(); i++) {
+            Environment.Binding binding = bindings.get(i);
+            int row = rowOf(names.get(i));
+            if (binding == null) {
+                if (row >= 0) {
+                    model.removeRow(row);
+                }
+                continue;
+            }
+            Object[] values = {
+                binding.getName(),
+                binding.toString(),
+                binding.isFunction() ? "" : binding.getError() != null ? binding.getError() : binding.getValue()
+            };
+            if (row < 0) {
+                model.addRow(values);
+            } else {
+                for (int column = 0; column < values.length; column++) {
+                    model.setValueAt(values[column], row, column);
+                }
+            }
+        }
+    }
+
+    private int rowOf(String name) {
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (name.equals(model.getValueAt(row, 0))) {
+                return row;
+            }
+        }
+        return -1;
+    }
 }
@@ -1,10 +1,52 @@
 package com.JMoolman997.calculator.ui;
 
+import com.JMoolman997.calculator.core.Expression;
+
 public class PanelGraphingDisplay extends DynamicPanel{
+    public static final String CURVE_MODE = "curve";
+    public static final String IMPLICIT_MODE = "implicit";
+
+    // Assigned from initializeModes, which runs inside the super constructor
+    private CurveView curveView;
+    private ImplicitView implicitView;
+
     @Override
     protected void initializeModes() {
-        // TODO Auto-generated method stub
-        
+        curveView = new CurveView();
+        implicitView = new ImplicitView();
+        addMode(CURVE_MODE, curveView);
+        addMode(IMPLICIT_MODE, implicitView);
+    }
+
+    /**
+     * Plots a function of x and shows the curve mode.
+     *
+     * @param source the function's source text
+     * @throws RuntimeException if the source cannot be parsed or uses a variable other than x
+     */
+    public void plot(String source) {
+        Expression function = Expression.compile(source, "x");
+        curveView.setFunction(function);
+        switchMode(CURVE_MODE);
     }
 
+    /**
+     * Plots the curve f(x, y) = 0 and shows the implicit mode.
+     *
+     * @param source the source text of f
+     * @throws RuntimeException if the source cannot be parsed or uses a variable other than x and y
+     */
+    public void plotImplicit(String source) {
+        Expression function = Expression.compile(source, "x", "y");
+        implicitView.setFunction(function);
+        switchMode(IMPLICIT_MODE);
+    }
+
+    public CurveView getCurveView() {
+        return curveView;
+    }
+
+    public ImplicitView getImplicitView() {
+        return implicitView;
+    }
 }
@@ -1,10 +1,71 @@
 package com.JMoolman997.calculator.ui;
 
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+
 public class PanelTextUi extends DynamicPanel{
+    public static final String INPUT_MODE = "input";
+
+    // Assigned from initializeModes, which runs inside the super constructor
+    private JTextField inputField;
+    private JLabel resultLabel;
+    private EvaluationPipeline pipeline;
+
     @Override
     protected void initializeModes() {
-        // TODO Auto-generated method stub
-        
+        inputField = new JTextField();
+        resultLabel = new JLabel(" ");
+        resultLabel.setHorizontalAlignment(SwingConstants.RIGHT);
+        pipeline = new EvaluationPipeline(this::showResult);
+
+        // Re-evaluate as the user types; the pipeline debounces and runs off the EDT
+        inputField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                inputChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                inputChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                inputChanged();
+            }
+        });
+        inputField.addActionListener(e -> {
+            if (!inputField.getText().isBlank()) {
+                pipeline.submitNow(inputField.getText());
+            }
+        });
+
+        JPanel inputPanel = new JPanel(new BorderLayout());
+        inputPanel.add(inputField, BorderLayout.NORTH);
+        inputPanel.add(resultLabel, BorderLayout.CENTER);
+        addMode(INPUT_MODE, inputPanel);
     }
 
+    private void inputChanged() {
+        String text = inputField.getText();
+        if (text.isBlank()) {
+            pipeline.cancel();
+            resultLabel.setText(" ");
+        } else {
+            pipeline.submit(text);
+        }
+    }
+
+    private void showResult(EvaluationPipeline.Result result) {
+        if (result.isError()) {
+            resultLabel.setForeground(Color.RED);
+            resultLabel.setText(result.getError());
+        } else {
+            resultLabel.setForeground(Color.BLACK);
+            resultLabel.setText("= " + result.getValue());
+        }
+    }
 }
@@ -0,0 +1,126 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for adaptive curve sampling.
+ */
+public class AdaptiveSamplerTest
+    extends TestCase
+{
+    public AdaptiveSamplerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( AdaptiveSamplerTest.class );
+    }
+
+    private static SampledCurve sample(String source, double x0, double x1)
+    {
+        return new AdaptiveSampler(0.01, 10).sample(Expression.compile(source, "x"), "x", x0, x1, () -> false, null);
+    }
+
+    public void testStraightLinesNeedNoRefinement()
+    {
+        SampledCurve curve = sample("2 * x + 1", -10, 10);
+        assertTrue(curve.isComplete());
+        assertEquals(2 * AdaptiveSampler.INITIAL_SEGMENTS + 1, curve.size());
+        assertEquals(-10.0, curve.x(0), 0.0);
+        assertEquals(10.0, curve.x(curve.size() - 1), 0.0);
+    }
+
+    public void testRefinesOnlyWhereTheCurveBends()
+    {
+        SampledCurve curve = sample("abs(x - 0.3)", -10, 10);
+        int nearKink = 0;
+        for (int i = 0; i < curve.size(); i++) {
+            assertEquals(Math.abs(curve.x(i) - 0.3), curve.y(i), 1e-12);
+            if (Math.abs(curve.x(i) - 0.3) < 0.5) {
+                nearKink++;
+            }
+        }
+        assertTrue(curve.size() < 400);
+        assertTrue(nearKink > curve.size() / 10);
+        for (int i = 1; i < curve.size(); i++) {
+            assertTrue(curve.x(i) > curve.x(i - 1));
+        }
+    }
+
+    public void testBreaksAtAsymptotes()
+    {
+        SampledCurve curve = sample("tan(x)", 0, 3);
+        int breaks = 0;
+        for (int i = 0; i < curve.size(); i++) {
+            if (Double.isNaN(curve.y(i))) {
+                breaks++;
+                assertEquals(Math.PI / 2, curve.x(i), 0.01);
+            }
+        }
+        assertEquals(1, breaks);
+        assertEquals(0, countBreaks(sample("x ^ 3 * 100", -3, 3)));
+    }
+
+    private static int countBreaks(SampledCurve curve)
+    {
+        int breaks = 0;
+        for (int i = 0; i < curve.size(); i++) {
+            if (!Double.isFinite(curve.y(i))) {
+                breaks++;
+            }
+        }
+        return breaks;
+    }
+
+    public void testRefinesASeedOnlyWhereItBends()
+    {
+        AdaptiveSampler sampler = new AdaptiveSampler(0.01, 10);
+        PlotTileCache tiles = new PlotTileCache(1L << 20);
+
+        Expression line = Expression.compile("2 * x + 1", "x");
+        SampledCurve seed = tiles.sample(line, "x", -10, 10, 400);
+        SampledCurve refined = sampler.refine(line, "x", seed, () -> false, null);
+        assertTrue(refined.isComplete());
+        // Nothing was evaluated, so no point was added
+        assertEquals(seed.size(), refined.size());
+
+        Expression kink = Expression.compile("abs(x - 0.3)", "x");
+        seed = tiles.sample(kink, "x", -10, 10, 400);
+        refined = sampler.refine(kink, "x", seed, () -> false, null);
+        int added = refined.size() - seed.size();
+        assertTrue(added > 0);
+        assertTrue(added < 40);
+        for (int i = 0; i < refined.size(); i++) {
+            assertEquals(Math.abs(refined.x(i) - 0.3), refined.y(i), 1e-12);
+            if (i > 0) {
+                assertTrue(refined.x(i) > refined.x(i - 1));
+            }
+        }
+
+        Expression tan = Expression.compile("tan(x)", "x");
+        SampledCurve broken = sampler.refine(tan, "x", tiles.sample(tan, "x", 0, 3, 400), () -> false, null);
+        assertEquals(1, countBreaks(broken));
+    }
+
+    public void testProgressAndCancellation()
+    {
+        final List<SampledCurve> snapshots = new ArrayList<>();
+        AdaptiveSampler sampler = new AdaptiveSampler(1e-4, 12);
+        Expression function = Expression.compile("sin(1 / x)", "x");
+        SampledCurve curve = sampler.sample(function, "x", 0.01, 1, () -> false, snapshots::add);
+        assertTrue(snapshots.size() > 2);
+        assertEquals(AdaptiveSampler.INITIAL_SEGMENTS + 1, snapshots.get(0).size());
+        assertFalse(snapshots.get(0).isComplete());
+        assertSame(curve, snapshots.get(snapshots.size() - 1));
+
+        final int[] polls = {0};
+        assertNull(sampler.sample(function, "x", 0.01, 1, () -> ++polls[0] > 2, null));
+    }
+}
@@ -0,0 +1,88 @@
+package com.JMoolman997.calculator.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks that batch evaluation agrees with per-point evaluation.
+ */
+public class BatchEvaluatorTest
+    extends TestCase
+{
+    private static final String[] EXPRESSIONS = {
+        "x * x - 2 * x * y + 1",
+        "-sqrt(abs(x)) / (y - 0.5)",
+        "sin(x) ^ 2 + cos(y) ^ 2",
+        "7"
+    };
+
+    public BatchEvaluatorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( BatchEvaluatorTest.class );
+    }
+
+    public void testMatchesPointwiseEvaluation()
+    {
+        int points = BatchEvaluator.CHUNK_SIZE * 2 + 37;
+        double[] xs = new double[points];
+        double[] ys = new double[points];
+        for (int i = 0; i < points; i++) {
+            xs[i] = -3 + 6.0 * i / points;
+            ys[i] = Math.cos(i);
+        }
+        double[][] columns = {xs, ys};
+        VariableLayout layout = VariableLayout.of("x", "y");
+
+        BatchEvaluator[] evaluators = {new BatchEvaluator(), new BatchEvaluator(new ScalarKernels())};
+        for (String source : EXPRESSIONS) {
+            BoundExpression expression = VariableBinder.bind(
+                new Parser(new DfaLexer(source).tokenize()).parse(), layout);
+            StackMachine machine = new StackMachine(expression.program());
+            for (BatchEvaluator evaluator : evaluators) {
+                double[] out = new double[points];
+                evaluator.evaluate(expression, columns, out);
+                for (int i = 0; i < points; i++) {
+                    double expected = machine.evaluate(new double[] {xs[i], ys[i]});
+                    assertEquals(source, Double.valueOf(expected), Double.valueOf(out[i]));
+                }
+            }
+        }
+    }
+
+    public void testUsesTheVectorApiWhenPresent()
+    {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            assertTrue(new BatchEvaluator().kernels().getClass().getName(),
+                new BatchEvaluator().kernels() instanceof VectorKernels);
+        } else {
+            assertTrue(new BatchEvaluator().kernels() instanceof ScalarKernels);
+        }
+    }
+
+    public void testEvaluatesCompiledExpressions()
+    {
+        Expression expression = Expression.compile("y - x * 2", "x", "y");
+        double[] out = new double[3];
+        new BatchEvaluator().evaluate(expression, new double[][] {{1, 2, 3}, {10, 20, 30}}, out);
+        assertEquals(8.0, out[0], 0.0);
+        assertEquals(16.0, out[1], 0.0);
+        assertEquals(24.0, out[2], 0.0);
+    }
+
+    public void testRejectsShortColumns()
+    {
+        BoundExpression expression = VariableBinder.bind(
+            new Parser(new DfaLexer("x + 1").tokenize()).parse());
+        try {
+            new BatchEvaluator().evaluate(expression, new double[][] {new double[2]}, new double[3]);
+            fail("Expected a short column to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.JMoolman997.calculator.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for the runtime bytecode backend.
+ */
+public class BytecodeCompilerTest
+    extends TestCase
+{
+    private static final String[] EXPRESSIONS = {
+        "3 + 5 * (2 - 8)",
+        "-x ^ 2 + 2 ^ -y",
+        "sin(x) * cos(y) / tan(x + y)",
+        "((x - 1) * (x + 1)) / (y * y) - pi + 0 * 1.5"
+    };
+
+    public BytecodeCompilerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( BytecodeCompilerTest.class );
+    }
+
+    public void testMatchesEvaluator()
+    {
+        BytecodeCompiler compiler = new BytecodeCompiler(16);
+        VariableLayout layout = VariableLayout.of("y", "x");
+        for (String expression : EXPRESSIONS) {
+            ASTNode ast = new Parser(new DfaLexer(expression).tokenize()).parse();
+            CompiledEvaluator compiled = compiler.compile(ast, layout);
+            assertTrue(compiled.getClass().isHidden());
+
+            for (double x = -2; x <= 2; x += 0.5) {
+                for (double y = -1; y <= 1; y += 0.25) {
+                    Evaluator evaluator = new Evaluator();
+                    evaluator.setVariable("x", x);
+                    evaluator.setVariable("y", y);
+                    assertEquals(expression, ast.accept(evaluator),
+                        Double.valueOf(compiled.evaluate(new double[] {y, x})));
+                }
+            }
+        }
+        assertEquals(0, compiler.fallbackCount());
+    }
+
+    public void testFallsBackWhenClassLimitIsReached()
+    {
+        BytecodeCompiler compiler = new BytecodeCompiler(1);
+        ASTNode ast = new Parser(new DfaLexer("x * 2").tokenize()).parse();
+        VariableLayout layout = VariableLayout.of("x");
+        CompiledEvaluator generated = compiler.compile(ast, layout);
+        CompiledEvaluator interpreted = compiler.compile(ast, layout);
+
+        assertTrue(generated.getClass().isHidden());
+        assertFalse(interpreted.getClass().isHidden());
+        assertEquals(1, compiler.fallbackCount());
+        assertEquals(6.0, interpreted.evaluate(new double[] {3}), 0.0);
+        assertEquals(6.0, generated.evaluate(new double[] {3}), 0.0);
+    }
+
+    public void testUndefinedVariableIsReported()
+    {
+        ASTNode ast = new Parser(new DfaLexer("x + z").tokenize()).parse();
+        try {
+            new BytecodeCompiler(1).compile(ast, VariableLayout.of("x"));
+            fail("Expected an undefined variable error");
+        } catch (RuntimeException expected) {
+            assertEquals("Undefined variable: z", expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.JMoolman997.calculator.core;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for memory-mapped CSV batch evaluation.
+ */
+public class CsvBatchEvaluatorTest
+    extends TestCase
+{
+    private File input;
+    private File output;
+
+    public CsvBatchEvaluatorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( CsvBatchEvaluatorTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        input = File.createTempFile("batch", ".csv");
+        output = File.createTempFile("batch", ".out");
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        input.delete();
+        output.delete();
+    }
+
+    private List<String> run(CsvBatchEvaluator evaluator, String csv) throws Exception
+    {
+        Files.write(input.toPath(), csv.getBytes(StandardCharsets.US_ASCII));
+        evaluator.run(input.toPath(), output.toPath());
+        return Files.readAllLines(output.toPath(), StandardCharsets.US_ASCII);
+    }
+
+    public void testEvaluatesEveryRow() throws Exception
+    {
+        List<String> lines = run(new CsvBatchEvaluator("x + y", "x * y"),
+            "x, y\n1,2\n-0.5 ,4e1\r\n\n1.25E-2,+3\n");
+        assertEquals(4, lines.size());
+        assertEquals("x + y,x * y", lines.get(0));
+        assertEquals("3.0,2.0", lines.get(1));
+        assertEquals("39.5,-20.0", lines.get(2));
+        assertEquals((0.0125 + 3) + "," + (0.0125 * 3), lines.get(3));
+    }
+
+    public void testRowsSpanningWindowsAreReadWhole() throws Exception
+    {
+        StringBuilder csv = new StringBuilder("a,b\n");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            double a = i * 0.125;
+            double b = 1234567.0 / (i + 1);
+            csv.append(a).append(',').append(b).append(i % 3 == 0 ? "\r\n" : "\n");
+            expected.append(a - b).append('\n');
+        }
+        List<String> lines = run(new CsvBatchEvaluator(40, "a - b"), csv.toString());
+        assertEquals(201, lines.size());
+        assertEquals(expected.toString(), String.join("\n", lines.subList(1, lines.size())) + "\n");
+    }
+
+    public void testParsesDigitsBeyondExactRangeCorrectly() throws Exception
+    {
+        List<String> lines = run(new CsvBatchEvaluator("v"),
+            "v\n0.12345678901234567890\n1e300\nNaN\n");
+        assertEquals(String.valueOf(0.12345678901234567890), lines.get(1));
+        assertEquals("1.0E300", lines.get(2));
+        assertEquals("NaN", lines.get(3));
+    }
+
+    public void testRejectsMalformedRows() throws Exception
+    {
+        try {
+            run(new CsvBatchEvaluator("x"), "x\n1\nabc\n");
+            fail("Expected a malformed number to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Malformed number in row 3, column 1", e.getMessage());
+        }
+        try {
+            run(new CsvBatchEvaluator("x"), "x,y\n1\n");
+            fail("Expected a short row to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Row 2 has 1 fields but 2 are required", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks that the DfaLexer agrees with the SimpleLexer it replaces.
+ */
+public class DfaLexerTest
+    extends TestCase
+{
+    private static final String[] EXPRESSIONS = {
+        "3 + 5 * (2 - 8)",
+        "x",
+        "42",
+        "sin(x) ^ 2 + cos(x) ^ 2",
+        "-(a_1 * b2) / pi",
+        "((1+2)*(3+4))^e",
+        "2x",
+        "alpha_beta9-gamma",
+        "\t12 *\n 7 "
+    };
+
+    public DfaLexerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( DfaLexerTest.class );
+    }
+
+    public void testMatchesSimpleLexer()
+    {
+        for (String expression : EXPRESSIONS) {
+            List<Token> expected = new SimpleLexer(expression).tokenize();
+            List<Token> actual = new DfaLexer(expression).tokenize();
+            assertEquals(expression, expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expression, expected.get(i).getType(), actual.get(i).getType());
+                assertEquals(expression, expected.get(i).getValue(), actual.get(i).getValue());
+            }
+        }
+    }
+
+    public void testDecimalNumbers()
+    {
+        List<Token> tokens = new DfaLexer("3.25*x").tokenize();
+        assertEquals(Token.TokenType.NUMBER, tokens.get(0).getType());
+        assertEquals("3.25", tokens.get(0).getValue());
+        assertEquals(Token.TokenType.OPERATOR, tokens.get(1).getType());
+    }
+
+    public void testRejectsUnexpectedCharacter()
+    {
+        try {
+            new DfaLexer("3 $ 4").tokenize();
+            fail("Expected the lexer to reject '$'");
+        } catch (RuntimeException expected) {
+            assertEquals("Unexpected character: $", expected.getMessage());
+        }
+        try {
+            new DfaLexer("3.").tokenize();
+            fail("Expected the lexer to reject a trailing point");
+        } catch (RuntimeException expected) {
+            assertEquals("Unexpected character: .", expected.getMessage());
+        }
+    }
+}
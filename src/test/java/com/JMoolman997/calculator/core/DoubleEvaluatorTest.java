@@ -0,0 +1,140 @@
+package com.JMoolman997.calculator.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for the primitive double visitor and evaluator.
+ */
+public class DoubleEvaluatorTest
+    extends TestCase
+{
+    public DoubleEvaluatorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( DoubleEvaluatorTest.class );
+    }
+
+    private static ASTNode parse(String source)
+    {
+        return new Parser(new DfaLexer(source).tokenize()).parse();
+    }
+
+    private static double evaluate(String source, double x)
+    {
+        DoubleEvaluator evaluator = new DoubleEvaluator();
+        evaluator.setVariable("x", x);
+        return parse(source).acceptDouble(evaluator);
+    }
+
+    public void testOperators()
+    {
+        double x = 1.5;
+        assertEquals(x + 2, evaluate("x + 2", x), 0.0);
+        assertEquals(x - 2, evaluate("x - 2", x), 0.0);
+        assertEquals(x * 2, evaluate("x * 2", x), 0.0);
+        assertEquals(x / 2, evaluate("x / 2", x), 0.0);
+        assertEquals(Math.pow(x, 3), evaluate("x ^ 3", x), 0.0);
+        assertEquals(-x, evaluate("-x", x), 0.0);
+        assertEquals(-Math.pow(x, 2), evaluate("-x ^ 2", x), 0.0);
+        assertEquals(Math.pow(2, Math.pow(3, 2)), evaluate("2 ^ 3 ^ 2", x), 0.0);
+        assertEquals(Math.PI * Math.E, evaluate("pi * e", x), 0.0);
+    }
+
+    public void testFunctions()
+    {
+        double x = 0.3;
+        assertEquals(Math.sin(x), evaluate("sin(x)", x), 0.0);
+        assertEquals(Math.cos(x), evaluate("cos(x)", x), 0.0);
+        assertEquals(Math.tan(x), evaluate("tan(x)", x), 0.0);
+        assertEquals(1 / Math.sin(x), evaluate("csc(x)", x), 1e-15);
+        assertEquals(1 / Math.cos(x), evaluate("sec(x)", x), 1e-15);
+        assertEquals(1 / Math.tan(x), evaluate("cot(x)", x), 1e-15);
+        assertEquals(Math.asin(x), evaluate("asin(x)", x), 0.0);
+        assertEquals(Math.acos(x), evaluate("acos(x)", x), 0.0);
+        assertEquals(Math.atan(x), evaluate("atan(x)", x), 0.0);
+        assertEquals(x, evaluate("abs(-x)", x), 0.0);
+        assertEquals(Math.sqrt(x), evaluate("sqrt(x)", x), 0.0);
+
+        FunctionNode pow = new FunctionNode("pow", Arrays.<ASTNode>asList(new NumberNode(2), new NumberNode(10)));
+        assertEquals(1024.0, pow.acceptDouble(new DoubleEvaluator()), 0.0);
+    }
+
+    public void testUndefinedVariable()
+    {
+        try {
+            parse("x + y").acceptDouble(new DoubleEvaluator());
+            fail("Expected an undefined variable to be reported");
+        } catch (RuntimeException e) {
+            assertEquals("Undefined variable: x", e.getMessage());
+        }
+    }
+
+    public void testVariablesCanBeChanged()
+    {
+        DoubleEvaluator evaluator = new DoubleEvaluator();
+        ASTNode tree = parse("a + b + c + d + f");
+        for (String name : new String[] {"a", "b", "c", "d", "f"}) {
+            evaluator.setVariable(name, 1);
+        }
+        assertEquals(5.0, tree.acceptDouble(evaluator), 0.0);
+        evaluator.setVariable("c", 10);
+        assertEquals(14.0, tree.acceptDouble(evaluator), 0.0);
+    }
+
+    public void testEvaluatesBoundFrames()
+    {
+        BoundExpression bound = VariableBinder.bind(parse("x * y - x"));
+        assertEquals(4.0, new DoubleEvaluator().evaluate(bound, new double[] {2, 3}), 0.0);
+        assertEquals(4.0, bound.evaluate(new double[] {2, 3}), 0.0);
+        try {
+            bound.evaluate(new double[1]);
+            fail("Expected a short frame to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Frame has 1 slots but 2 are required", e.getMessage());
+        }
+    }
+
+    public void testRepeatedEvaluationDoesNotAllocate()
+    {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        ASTNode tree = parse("sin(x) * x ^ 2 - sqrt(abs(x)) / 3");
+        DoubleEvaluator evaluator = new DoubleEvaluator();
+        BoundExpression bound = VariableBinder.bind(tree);
+        double[] frame = new double[1];
+        double sum = 0;
+        for (int i = 0; i < 20000; i++) {
+            evaluator.setVariable("x", i);
+            sum += tree.acceptDouble(evaluator);
+            frame[0] = i;
+            sum += bound.evaluate(frame);
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 20000; i++) {
+            evaluator.setVariable("x", i);
+            sum += tree.acceptDouble(evaluator);
+            frame[0] = i;
+            sum += bound.evaluate(frame);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertFalse(Double.isNaN(sum));
+        // Allow for the measurement itself, but not for anything per evaluation
+        assertTrue("Allocated " + allocated + " bytes", allocated < 20000);
+    }
+}
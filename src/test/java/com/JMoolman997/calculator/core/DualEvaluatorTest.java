@@ -0,0 +1,86 @@
+package com.JMoolman997.calculator.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks forward-mode derivatives against central finite differences.
+ */
+public class DualEvaluatorTest
+    extends TestCase
+{
+    private static final String[] EXPRESSIONS = {
+        "x ^ 3 - 2 * x + 1",
+        "sin(x) * cos(x) / tan(x)",
+        "csc(x) + sec(x) + cot(x)",
+        "asin(x / 2) + acos(x / 3) + atan(x)",
+        "sqrt(abs(x)) * y",
+        "x ^ x",
+        "2 ^ x / (1 + y * x)"
+    };
+
+    public DualEvaluatorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( DualEvaluatorTest.class );
+    }
+
+    public void testMatchesFiniteDifferences()
+    {
+        VariableLayout layout = VariableLayout.of("x", "y");
+        double h = 1e-6;
+        for (String source : EXPRESSIONS) {
+            ASTNode ast = new Parser(new DfaLexer(source).tokenize()).parse();
+            StackMachine machine = new StackMachine(PostfixProgram.compile(ast, layout));
+            DualEvaluator evaluator = new DualEvaluator("x");
+            for (double x = 0.3; x < 1.2; x += 0.1) {
+                evaluator.setVariable("x", x);
+                evaluator.setVariable("y", 0.7);
+                double value = evaluator.evaluate(ast);
+                double slope = (machine.evaluate(new double[] {x + h, 0.7})
+                    - machine.evaluate(new double[] {x - h, 0.7})) / (2 * h);
+                assertEquals(source, machine.evaluate(new double[] {x, 0.7}), value, 0.0);
+                assertEquals(source, slope, evaluator.derivative(), 1e-5 * Math.max(1, Math.abs(slope)));
+            }
+        }
+    }
+
+    public void testBatchMode()
+    {
+        BoundExpression expression = VariableBinder.bind(
+            new Parser(new DfaLexer("x * x * y").tokenize()).parse(), VariableLayout.of("x", "y"));
+        double[][] columns = {{1, 2, 3}, {10, 10, 0.5}};
+        double[] values = new double[3];
+        double[] slopes = new double[3];
+        new DualEvaluator("x").evaluate(expression, columns, values, slopes);
+        assertEquals(40.0, values[1], 0.0);
+        assertEquals(40.0, slopes[1], 0.0);
+        assertEquals(3.0, slopes[2], 0.0);
+    }
+
+    public void testNamedVariables()
+    {
+        ASTNode ast = new Parser(new DfaLexer("a + b + c + d + f * x").tokenize()).parse();
+        DualEvaluator evaluator = new DualEvaluator("x");
+        for (String name : new String[] {"a", "b", "c", "d", "f", "x"}) {
+            evaluator.setVariable(name, 1);
+        }
+        assertEquals(5.0, evaluator.evaluate(ast), 0.0);
+        assertEquals(1.0, evaluator.derivative(), 0.0);
+        evaluator.setVariable("f", 3);
+        assertEquals(7.0, evaluator.evaluate(ast), 0.0);
+        assertEquals(3.0, evaluator.derivative(), 0.0);
+
+        try {
+            new DualEvaluator("x").evaluate(ast);
+            fail("Expected an undefined variable to be reported");
+        } catch (RuntimeException e) {
+            assertEquals("Undefined variable: a", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.JMoolman997.calculator.core;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for per-phase timing metrics.
+ */
+public class EngineMetricsTest
+    extends TestCase
+{
+    public EngineMetricsTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( EngineMetricsTest.class );
+    }
+
+    private static long sum(long[] values)
+    {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    public void testRecordsEachPhase()
+    {
+        assertTrue(EngineMetrics.ENABLED);
+        long lexed = EngineMetrics.LEX.getCount();
+        long parsed = EngineMetrics.PARSE.getCount();
+        long evaluated = EngineMetrics.EVALUATE.getCount();
+
+        Evaluator evaluator = new Evaluator();
+        evaluator.setVariable("x", 2.0);
+        assertEquals(5.0, evaluator.evaluate(new Parser(new SimpleLexer("x * x + 1").tokenize()).parse()), 0.0);
+        new DfaLexer("x").tokenize();
+
+        assertEquals(lexed + 2, EngineMetrics.LEX.getCount());
+        assertEquals(parsed + 1, EngineMetrics.PARSE.getCount());
+        assertEquals(evaluated + 1, EngineMetrics.EVALUATE.getCount());
+    }
+
+    public void testRecordsEveryEvaluationPath()
+    {
+        Expression expression = Expression.compile("x * 2");
+        BatchEvaluator batch = new BatchEvaluator();
+        double[] out = new double[3];
+        Environment environment = new Environment();
+
+        long evaluated = EngineMetrics.EVALUATE.getCount();
+        Expression.Context context = expression.newContext().set("x", 3);
+        // Single points are sampled, and any run of SAMPLE_INTERVAL calls holds exactly one sample
+        for (int i = 0; i < EngineMetrics.SAMPLE_INTERVAL; i++) {
+            assertEquals(4.0, expression.evaluate(new double[] {2}), 0.0);
+            assertEquals(6.0, context.evaluate(), 0.0);
+            assertEquals(8.0, expression.bound().evaluate(new double[] {4}), 0.0);
+        }
+        assertEquals(evaluated + 3 * EngineMetrics.SAMPLE_INTERVAL, EngineMetrics.EVALUATE.getCount());
+
+        long batches = EngineMetrics.BATCH.getCount();
+        batch.evaluate(expression.bound(), new double[][] {{1, 2, 3}}, out);
+        environment.set("a", 5);
+        assertEquals(evaluated + 3 * EngineMetrics.SAMPLE_INTERVAL + 1, EngineMetrics.EVALUATE.getCount());
+        assertEquals(batches + 1, EngineMetrics.BATCH.getCount());
+        assertEquals(6.0, out[2], 0.0);
+    }
+
+    public void testSampledCallsStandForTheirInterval()
+    {
+        PhaseMetrics phase = new PhaseMetrics("test");
+        phase.recordSample(System.nanoTime());
+        assertEquals(EngineMetrics.SAMPLE_INTERVAL, phase.getCount());
+        assertEquals(EngineMetrics.SAMPLE_INTERVAL, sum(phase.getHistogram()));
+        assertFalse(EngineMetrics.sampled(1));
+        assertTrue(EngineMetrics.sampled(EngineMetrics.SAMPLE_INTERVAL));
+    }
+
+    public void testHistogramAccountsForEveryCall()
+    {
+        PhaseMetrics phase = new PhaseMetrics("test");
+        long now = System.nanoTime();
+        phase.record(now);
+        phase.record(now - 2_000_000L);
+        phase.record(now - 10_000_000_000L);
+
+        long[] histogram = phase.getHistogram();
+        assertEquals(phase.getBucketBoundsNanos().length + 1, histogram.length);
+        assertEquals(3, sum(histogram));
+        // Sub-microsecond calls are told apart
+        assertTrue(phase.getBucketBoundsNanos()[0] < 100);
+        assertTrue(phase.getBucketBoundsNanos()[2] < 1_000);
+        assertEquals(1, histogram[histogram.length - 1]);
+        assertTrue(phase.getMaxNanos() >= 10_000_000_000L);
+        assertTrue(phase.getMeanNanos() > 0);
+
+        phase.reset();
+        assertEquals(0, phase.getCount());
+        assertEquals(0, sum(phase.getHistogram()));
+    }
+
+    public void testPublishesPlatformMBeans() throws Exception
+    {
+        new DfaLexer("1").tokenize();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (String phase : new String[] {"lex", "parse", "evaluate", "batch"}) {
+            assertTrue(server.isRegistered(EngineMetrics.objectName(phase)));
+        }
+        Object count = server.getAttribute(EngineMetrics.objectName("lex"), "Count");
+        assertTrue(((Long) count) > 0);
+    }
+}
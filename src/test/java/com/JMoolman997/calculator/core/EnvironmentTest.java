@@ -0,0 +1,138 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for the reactive environment of user definitions.
+ */
+public class EnvironmentTest
+    extends TestCase
+{
+    public EnvironmentTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( EnvironmentTest.class );
+    }
+
+    public void testRecomputesOnlyDependents()
+    {
+        Environment environment = new Environment();
+        environment.define("b = 3");
+        environment.define("a = 2*b");
+        environment.define("c = a + 1");
+        environment.define("d = 5");
+        assertEquals(7.0, environment.binding("c").getValue(), 0.0);
+
+        assertEquals(Arrays.asList("b", "a", "c"), environment.set("b", 4));
+        assertEquals(8.0, environment.binding("a").getValue(), 0.0);
+        assertEquals(9.0, environment.binding("c").getValue(), 0.0);
+        assertEquals(5.0, environment.binding("d").getValue(), 0.0);
+    }
+
+    public void testUserFunctions()
+    {
+        Environment environment = new Environment();
+        environment.define("a = 2");
+        environment.define("f(x) = x^2 + a");
+        environment.define("y = f(3) * sin(0) + f(1)");
+        assertTrue(environment.binding("f").isFunction());
+        assertEquals(3.0, environment.binding("y").getValue(), 0.0);
+
+        List<String> changed = environment.set("a", 10);
+        assertEquals(Arrays.asList("a", "f", "y"), changed);
+        assertEquals(11.0, environment.binding("y").getValue(), 0.0);
+
+        environment.define("f(t) = t");
+        assertEquals(1.0, environment.binding("y").getValue(), 0.0);
+        assertEquals("f(t) = t", environment.binding("f").toString());
+    }
+
+    public void testRejectsCycles()
+    {
+        Environment environment = new Environment();
+        environment.define("a = b + 1");
+        environment.define("c = a");
+        try {
+            environment.define("b = c * 2");
+            fail("Expected a circular definition to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Circular definition: b -> c -> a -> b", e.getMessage());
+        }
+        assertNull(environment.binding("b"));
+
+        try {
+            environment.define("f(x) = f(x - 1)");
+            fail("Expected a recursive function to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Circular definition: f -> f", e.getMessage());
+        }
+    }
+
+    public void testUndefinedNamesResolveLater()
+    {
+        Environment environment = new Environment();
+        environment.define("a = b * 2");
+        assertEquals("Undefined variable: b", environment.binding("a").getError());
+        assertTrue(Double.isNaN(environment.binding("a").getValue()));
+
+        environment.define("b = 1.5");
+        assertNull(environment.binding("a").getError());
+        assertEquals(3.0, environment.binding("a").getValue(), 0.0);
+
+        assertEquals(Arrays.asList("b", "a"), environment.remove("b"));
+        assertEquals("Undefined variable: b", environment.binding("a").getError());
+        assertTrue(environment.remove("b").isEmpty());
+    }
+
+    public void testRejectsBuiltinNames()
+    {
+        Environment environment = new Environment();
+        for (String definition : new String[] {"sin = 2", "pi = 3", "f(e) = e", "2 = x"}) {
+            try {
+                environment.define(definition);
+                fail("Expected " + definition + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertTrue(environment.bindings().isEmpty());
+    }
+
+    public void testWideGraphRecomputesInTopologicalOrder()
+    {
+        Environment environment = new Environment();
+        List<List<String>> notifications = new ArrayList<>();
+        environment.addListener(notifications::add);
+
+        environment.set("r", 1);
+        StringBuilder sum = new StringBuilder("total = 0");
+        for (int i = 0; i < 64; i++) {
+            environment.define("v" + i + " = r * " + i);
+            environment.define("w" + i + " = v" + i + " + 1");
+            sum.append(" + w").append(i);
+        }
+        environment.define(sum.toString());
+        notifications.clear();
+
+        List<String> changed = environment.set("r", 2);
+        assertEquals(1, notifications.size());
+        assertEquals(changed, notifications.get(0));
+        assertEquals(2 + 2 * 64, changed.size());
+        assertEquals("r", changed.get(0));
+        assertEquals("total", changed.get(changed.size() - 1));
+        for (int i = 0; i < 64; i++) {
+            assertTrue(changed.indexOf("v" + i) < changed.indexOf("w" + i));
+        }
+        assertEquals(64 + 2 * (63 * 64 / 2), environment.binding("total").getValue(), 0.0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.JMoolman997.calculator.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for opcode dispatch in the tree-walking evaluators.
+ */
+public class EvaluatorTest
+    extends TestCase
+{
+    public EvaluatorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( EvaluatorTest.class );
+    }
+
+    private static ASTNode parse(String source)
+    {
+        return new Parser(new DfaLexer(source).tokenize()).parse();
+    }
+
+    public void testResolvesOpcodesAtParseTime()
+    {
+        ASTNode tree = parse("-sqrt(x) ^ 2");
+        assertEquals(Opcodes.NEG, ((UnaryOpNode) tree).opcode);
+        BinaryOpNode power = (BinaryOpNode) tree.getChildren().get(0);
+        assertEquals(Opcodes.POW, power.opcode);
+        assertEquals(Opcodes.SQRT, ((FunctionNode) power.getChildren().get(0)).opcode);
+        assertEquals(-1, ((FunctionNode) parse("foo(1)")).opcode);
+    }
+
+    public void testEveryRegisteredFunctionIsCallable()
+    {
+        String source = "csc(x) + sec(x) + cot(x) + asin(0.5) + acos(0.5) + atan(x) + abs(-x) + sqrt(x)";
+        double x = 0.7;
+        double expected = 1 / Math.sin(x) + 1 / Math.cos(x) + 1 / Math.tan(x) + Math.asin(0.5)
+            + Math.acos(0.5) + Math.atan(x) + Math.abs(-x) + Math.sqrt(x);
+
+        Evaluator evaluator = new Evaluator();
+        evaluator.setVariable("x", x);
+        assertEquals(expected, parse(source).accept(evaluator), 1e-12);
+
+        DoubleEvaluator doubleEvaluator = new DoubleEvaluator();
+        doubleEvaluator.setVariable("x", x);
+        assertEquals(expected, parse(source).acceptDouble(doubleEvaluator), 1e-12);
+    }
+
+    public void testReportsUnknownFunctionsAndArity()
+    {
+        Evaluator evaluator = new Evaluator();
+        try {
+            parse("foo(1)").accept(evaluator);
+            fail("Expected an unknown function to be rejected");
+        } catch (RuntimeException e) {
+            assertEquals("Unknown function: foo", e.getMessage());
+        }
+
+        FunctionNode pow = new FunctionNode("pow", java.util.Collections.<ASTNode>singletonList(new NumberNode(2)));
+        try {
+            pow.accept(evaluator);
+            fail("Expected a wrong argument count to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("pow function requires 2 arguments", e.getMessage());
+        }
+    }
+}
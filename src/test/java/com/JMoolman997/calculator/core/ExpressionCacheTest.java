@@ -0,0 +1,62 @@
+package com.JMoolman997.calculator.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for the parsed expression cache.
+ */
+public class ExpressionCacheTest
+    extends TestCase
+{
+    public ExpressionCacheTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ExpressionCacheTest.class );
+    }
+
+    public void testRepeatedSourceIsParsedOnce()
+    {
+        ExpressionCache cache = new ExpressionCache(8);
+        ASTNode first = cache.get("x * (y + 1)");
+        ASTNode second = cache.get("  x *  (y\t+ 1) ");
+        assertSame(first, second);
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.hitCount());
+    }
+
+    public void testLeastRecentlyUsedIsEvicted()
+    {
+        ExpressionCache cache = new ExpressionCache(2);
+        ASTNode a = cache.get("a + 1");
+        cache.get("b + 1");
+        cache.get("a + 1");
+        cache.get("c + 1");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertSame(a, cache.get("a + 1"));
+        assertEquals(3, cache.missCount());
+    }
+
+    public void testCachedTreesAreFrozen()
+    {
+        ASTNode tree = new ExpressionCache(4).get("1 + 2");
+        try {
+            tree.add(new NumberNode(3));
+            fail("Expected a frozen tree");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    public void testNormalize()
+    {
+        assertEquals("a + b", ExpressionCache.normalize("a + b"));
+        assertEquals("a + b", ExpressionCache.normalize(" a \t+\n\nb "));
+        assertEquals("", ExpressionCache.normalize("   "));
+    }
+}
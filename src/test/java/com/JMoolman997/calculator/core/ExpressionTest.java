@@ -0,0 +1,95 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for the shareable compiled expression.
+ */
+public class ExpressionTest
+    extends TestCase
+{
+    public ExpressionTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ExpressionTest.class );
+    }
+
+    public void testEvaluatesFramesAndContexts()
+    {
+        Expression expression = Expression.compile("x * x + sin(y)");
+        assertEquals(2, expression.variables().size());
+        assertEquals(0, expression.slotOf("x"));
+        assertEquals(-1, expression.slotOf("z"));
+
+        assertEquals(9 + Math.sin(1), expression.evaluate(new double[] {3, 1}), 1e-12);
+
+        Expression.Context context = expression.newContext().set("x", 2).set("y", 0);
+        assertEquals(4.0, context.evaluate(), 0.0);
+        context.set(expression.slotOf("y"), Math.PI / 2);
+        assertEquals(5.0, context.evaluate(), 1e-12);
+    }
+
+    public void testFixedLayoutRejectsUnknownVariables()
+    {
+        Expression expression = Expression.compile("b - a", "a", "b");
+        assertEquals(1.0, expression.evaluate(new double[] {2, 3}), 0.0);
+        try {
+            Expression.compile("c", "a", "b");
+            fail("Expected an undefined variable to be rejected");
+        } catch (RuntimeException e) {
+            assertEquals("Undefined variable: c", e.getMessage());
+        }
+        try {
+            expression.evaluate(new double[1]);
+            fail("Expected a short frame to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testConcurrentEvaluationOfOneExpression() throws Exception
+    {
+        final Expression expression = Expression.compile("x ^ 2 - 2 * x + 1");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int offset = t;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        Expression.Context context = expression.newContext();
+                        double[] frame = expression.newFrame();
+                        for (int i = 0; i < 10000; i++) {
+                            double x = offset + i * 0.001;
+                            frame[0] = x;
+                            double expected = (x - 1) * (x - 1);
+                            if (Math.abs(context.set(0, x).evaluate() - expected) > 1e-9
+                                    || Math.abs(expression.evaluate(frame) - expected) > 1e-9) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.JMoolman997.calculator.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks reverse-mode gradients against forward-mode derivatives.
+ */
+public class GradientTapeTest
+    extends TestCase
+{
+    private static final String[] EXPRESSIONS = {
+        "a * b * c - a / c",
+        "sin(a * b) ^ 2 + sqrt(c) * atan(a)",
+        "a ^ b + b ^ 2 - sec(c) * csc(a)",
+        "-(a - b) * (a - b) / abs(c)"
+    };
+
+    public GradientTapeTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( GradientTapeTest.class );
+    }
+
+    public void testMatchesForwardMode()
+    {
+        VariableLayout layout = VariableLayout.of("a", "b", "c");
+        double[] frame = {1.3, 0.7, 2.1};
+        double[] gradient = new double[3];
+
+        for (String source : EXPRESSIONS) {
+            ASTNode ast = new Parser(new DfaLexer(source).tokenize()).parse();
+            GradientTape tape = new GradientTape(new NodeInterner().intern(ast), layout);
+            // Run twice to check that the tape is reusable
+            tape.gradient(new double[] {5, 5, 5}, gradient);
+            double value = tape.gradient(frame, gradient);
+
+            for (int slot = 0; slot < 3; slot++) {
+                DualEvaluator forward = new DualEvaluator(layout.name(slot));
+                for (int i = 0; i < 3; i++) {
+                    forward.setVariable(layout.name(i), frame[i]);
+                }
+                assertEquals(source, forward.evaluate(ast), value, 0.0);
+                assertEquals(source + " d/d" + layout.name(slot), forward.derivative(), gradient[slot], 1e-12);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for marching-squares implicit plotting.
+ */
+public class ImplicitPlotterTest
+    extends TestCase
+{
+    public ImplicitPlotterTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ImplicitPlotterTest.class );
+    }
+
+    private static ImplicitCurve plot(ImplicitPlotter plotter, String source, int depth)
+    {
+        return plotter.plot(Expression.compile(source, "x", "y"), "x", "y", -3, 3.1, -3, 3.1, 24, 24, depth, () -> false);
+    }
+
+    public void testTracesACircle()
+    {
+        ImplicitCurve curve = plot(new ImplicitPlotter(), "x ^ 2 + y ^ 2 - 4", 3);
+        assertTrue(curve.segmentCount() > 100);
+        double length = 0;
+        for (int i = 0; i < curve.segmentCount(); i++) {
+            assertEquals(2.0, Math.hypot(curve.startX(i), curve.startY(i)), 1e-3);
+            assertEquals(2.0, Math.hypot(curve.endX(i), curve.endY(i)), 1e-3);
+            length += Math.hypot(curve.endX(i) - curve.startX(i), curve.endY(i) - curve.startY(i));
+        }
+        assertEquals(4 * Math.PI, length, 0.01);
+    }
+
+    public void testRefinementCostFollowsCurveLength()
+    {
+        ImplicitPlotter plotter = new ImplicitPlotter();
+        long grid = 25L * 25;
+        long shallow = plot(plotter, "x ^ 2 + y ^ 2 - 4", 2).evaluations() - grid;
+        long deep = plot(plotter, "x ^ 2 + y ^ 2 - 4", 4).evaluations() - grid;
+        // Two more levels quadruple the resolution; a full grid would cost 16 times more
+        assertTrue(deep < 6 * shallow);
+    }
+
+    public void testSkipsPolesAndSaddlesResolve()
+    {
+        ImplicitPlotter plotter = new ImplicitPlotter();
+        assertEquals(0, plot(plotter, "1 / x", 3).segmentCount());
+
+        ImplicitCurve cross = plot(plotter, "x * y", 2);
+        for (int i = 0; i < cross.segmentCount(); i++) {
+            assertTrue(Math.abs(cross.startX(i)) < 1e-9 || Math.abs(cross.startY(i)) < 1e-9);
+        }
+        assertTrue(cross.segmentCount() > 0);
+    }
+
+    public void testUsesTheGivenExecutorAndHonoursCancellation()
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            ImplicitPlotter plotter = new ImplicitPlotter(executor);
+            ImplicitCurve parallel = plot(plotter, "sin(x) - y", 3);
+            ImplicitCurve serial = plot(new ImplicitPlotter(single), "sin(x) - y", 3);
+            assertEquals(serial.segmentCount(), parallel.segmentCount());
+
+            assertNull(plotter.plot(Expression.compile("x - y", "x", "y"), "x", "y", -1, 1, -1, 1, 8, 8, 2, () -> true));
+        } finally {
+            executor.shutdown();
+            single.shutdown();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for incremental re-lexing and re-parsing.
+ */
+public class IncrementalParserTest
+    extends TestCase
+{
+    public IncrementalParserTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( IncrementalParserTest.class );
+    }
+
+    public void testRandomEditsMatchAFullParse()
+    {
+        randomEdits("sin(x) * (x + 2) - (1 / (x ^ 2))", "x12+-*/^(). sinab", 7);
+    }
+
+    public void testRandomEditsOfALongSumMatchAFullParse()
+    {
+        StringBuilder source = new StringBuilder("x");
+        for (int i = 0; i < 20; i++) {
+            source.append(i % 3 == 0 ? " - (x + 1) * 2" : " + x / 2");
+        }
+        randomEdits(source.toString(), "x12+-*/() ", 11);
+    }
+
+    private static void randomEdits(String initial, String alphabet, long seed)
+    {
+        Random random = new Random(seed);
+        IncrementalParser parser = new IncrementalParser(initial);
+        for (int step = 0; step < 2000; step++) {
+            String source = parser.source();
+            int offset = random.nextInt(source.length() + 1);
+            int removed = source.length() > 20 ? random.nextInt(Math.min(3, source.length() - offset) + 1) : 0;
+            StringBuilder inserted = new StringBuilder();
+            for (int i = random.nextInt(3); i > 0; i--) {
+                inserted.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            parser.edit(offset, removed, inserted.toString());
+            assertMatchesFullParse(parser);
+        }
+    }
+
+    public void testUpdateFindsTheEdit()
+    {
+        IncrementalParser parser = new IncrementalParser("x * (x + 1)");
+        parser.update("x * (x + 12)");
+        assertEquals("x * (x + 12)", parser.source());
+        assertEquals(1, parser.relexedCount());
+        assertEquals(45.0, parser.compile().evaluate(new double[] {3}), 0.0);
+        assertMatchesFullParse(parser);
+    }
+
+    public void testRelexesOnlyTheEditedToken()
+    {
+        StringBuilder source = new StringBuilder("x");
+        for (int i = 0; i < 1000; i++) {
+            source.append(" + x");
+        }
+        IncrementalParser parser = new IncrementalParser(source.toString());
+        int middle = source.length() / 2;
+        while (source.charAt(middle) != 'x') {
+            middle++;
+        }
+        parser.edit(middle + 1, 0, "1");
+        assertEquals(1, parser.relexedCount());
+        assertEquals(2001 + 1, parser.tokens().size());
+        // The sum before the edit is reused whole, and so is every term after it
+        int later = 1000 - middle / 4;
+        assertEquals(1 + later, parser.reusedCount());
+        // Only the operator before the edit, the edited term, the operators after it and the end are read
+        assertEquals(2 + later + 1, parser.parsedCount());
+        assertMatchesFullParse(parser);
+    }
+
+    public void testTypingAtTheEndParsesOnlyTheEnd()
+    {
+        StringBuilder source = new StringBuilder("x");
+        for (int i = 0; i < 1000; i++) {
+            source.append(" + x");
+        }
+        IncrementalParser parser = new IncrementalParser(source.toString());
+        for (String typed : new String[] {" ", "-", " ", "y", "1"}) {
+            parser.edit(parser.source().length(), 0, typed);
+        }
+        assertTrue(parser.source().endsWith("x - y1"));
+        assertEquals(1, parser.reusedCount());
+        // Only the - before the edited term, y1 itself and the end
+        assertEquals(3, parser.parsedCount());
+        assertMatchesFullParse(parser);
+    }
+
+    public void testParsesOnlyTheEditedGroup()
+    {
+        StringBuilder source = new StringBuilder("(x + x)");
+        for (int i = 0; i < 200; i++) {
+            source.append(" + (x + x)");
+        }
+        IncrementalParser parser = new IncrementalParser(source.toString());
+        int middle = source.indexOf("(", source.length() / 2) + 1;
+        parser.edit(middle, 1, "2");
+        assertEquals(201 * 5 + 200 + 1, parser.tokens().size());
+        // The sum before the group, the x after the edit, and each group after it
+        int later = 200 - middle / 10;
+        assertEquals(2 + later, parser.reusedCount());
+        // The + before the group, its parentheses, the new 2 and the + after it,
+        // the operators between the later groups, and the end
+        assertEquals(5 + later + 1, parser.parsedCount());
+        assertMatchesFullParse(parser);
+    }
+
+    public void testReusesUntouchedGroups()
+    {
+        IncrementalParser parser = new IncrementalParser("(x + 1) * (x + 2) * sin(x + 3)");
+        ASTNode before = parser.tree();
+        ASTNode firstGroup = before.getChildren().get(0).getChildren().get(0);
+
+        parser.edit(15, 1, "5");
+        assertEquals("(x + 1) * (x + 5) * sin(x + 3)", parser.source());
+        // The first group, the x + of the second, and the argument of sin
+        assertEquals(3, parser.reusedCount());
+        ASTNode after = parser.tree();
+        assertSame(firstGroup, after.getChildren().get(0).getChildren().get(0));
+        assertSame(before.getChildren().get(1).getChildren().get(0), after.getChildren().get(1).getChildren().get(0));
+        assertEquals(3 * 7 * Math.sin(5), parser.compile().evaluate(new double[] {2}), 1e-12);
+    }
+
+    public void testRecoversFromErrors()
+    {
+        IncrementalParser parser = new IncrementalParser("sin(x");
+        assertNull(parser.tree());
+        try {
+            parser.compile();
+            fail("Expected an unbalanced parenthesis to be reported");
+        } catch (RuntimeException e) {
+            assertEquals("Unexpected token: EOF", e.getMessage());
+        }
+
+        parser.edit(5, 0, ")");
+        assertEquals(Math.sin(1), parser.compile().evaluate(new double[] {1}), 0.0);
+
+        parser.edit(0, 0, "#");
+        assertNull(parser.tokens());
+        parser.edit(0, 1, "");
+        assertEquals(Math.sin(1), parser.compile().evaluate(new double[] {1}), 0.0);
+    }
+
+    public void testRejectsEditOutsideSource()
+    {
+        IncrementalParser parser = new IncrementalParser("x + 1");
+        try {
+            parser.edit(4, 2, "");
+            fail("Expected an edit past the end to be rejected");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    private static void assertMatchesFullParse(IncrementalParser parser)
+    {
+        String source = parser.source();
+        List<Token> expected;
+        try {
+            expected = new DfaLexer(source).tokenize();
+        } catch (RuntimeException e) {
+            assertNull(source, parser.tokens());
+            assertNull(source, parser.tree());
+            return;
+        }
+        List<Token> actual = parser.tokens();
+        assertNotNull(source, actual);
+        assertEquals(source, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(source, expected.get(i).getType(), actual.get(i).getType());
+            assertEquals(source, expected.get(i).getValue(), actual.get(i).getValue());
+        }
+
+        Expression full;
+        try {
+            full = Expression.compile(source);
+        } catch (RuntimeException e) {
+            assertNull(source, parser.tree());
+            return;
+        }
+        Expression incremental = parser.compile();
+        assertEquals(source, full.variables(), incremental.variables());
+        double[] frame = full.newFrame();
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = 0.5 + i;
+        }
+        assertEquals(source, Double.valueOf(full.evaluate(frame)), Double.valueOf(incremental.evaluate(frame)));
+    }
+}
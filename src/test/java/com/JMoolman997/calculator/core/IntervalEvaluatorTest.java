@@ -0,0 +1,124 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for interval-arithmetic evaluation.
+ */
+public class IntervalEvaluatorTest
+    extends TestCase
+{
+    public IntervalEvaluatorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( IntervalEvaluatorTest.class );
+    }
+
+    private static ASTNode parse(String source)
+    {
+        return new Parser(new DfaLexer(source).tokenize()).parse();
+    }
+
+    private static IntervalEvaluator over(String source, double lo, double hi)
+    {
+        IntervalEvaluator evaluator = new IntervalEvaluator();
+        evaluator.setVariable("x", lo, hi);
+        evaluator.evaluate(parse(source));
+        return evaluator;
+    }
+
+    private static void assertEncloses(String source, IntervalEvaluator evaluator, double x, double value)
+    {
+        if (!Double.isNaN(value)) {
+            assertTrue(source + " at " + x + " = " + value + " not in [" + evaluator.lower()
+                    + ", " + evaluator.upper() + "]",
+                evaluator.lower() <= value && value <= evaluator.upper());
+        }
+    }
+
+    public void testEnclosesSampledValues()
+    {
+        String[] sources = {
+            "x * x - 2 * x + 1", "sin(x) * cos(x)", "tan(x / 4)", "x ^ 3 - x", "sqrt(abs(x)) / (x - 7)",
+            "atan(x) + asin(x / 10)", "1 / (x * x + 1)", "-x ^ 2", "csc(x) + sec(x)", "cot(x) - acos(x / 10)",
+            "abs(x) ^ 0.5", "x ^ -2", "cos(x)", "sec(x)"
+        };
+        Random random = new Random(42);
+        DoubleEvaluator point = new DoubleEvaluator();
+        for (String source : sources) {
+            ASTNode tree = parse(source);
+            for (int trial = 0; trial < 200; trial++) {
+                double lo = random.nextDouble() * 20 - 10;
+                double hi = lo + random.nextDouble() * (trial % 2 == 0 ? 0.5 : 5);
+                IntervalEvaluator evaluator = over(source, lo, hi);
+                for (int i = 0; i <= 20; i++) {
+                    double x = Math.min(hi, lo + (hi - lo) * i / 20);
+                    point.setVariable("x", x);
+                    assertEncloses(source, evaluator, x, tree.acceptDouble(point));
+                }
+            }
+            // Single points on the zeros and extrema of the trigonometric functions
+            for (int k = -4; k <= 4; k++) {
+                double x = k * (Math.PI / 2);
+                point.setVariable("x", x);
+                assertEncloses(source, over(source, x, x), x, tree.acceptDouble(point));
+            }
+        }
+    }
+
+    public void testBoundsAreTight()
+    {
+        IntervalEvaluator evaluator = over("x ^ 2", -1, 2);
+        assertEquals(0.0, evaluator.lower(), 0.0);
+        assertEquals(4.0, evaluator.upper(), 1e-12);
+
+        evaluator = over("sin(x)", 0, Math.PI);
+        assertEquals(1.0, evaluator.upper(), 0.0);
+        assertEquals(0.0, evaluator.lower(), 1e-12);
+
+        evaluator = over("x - x", 1, 2);
+        assertEquals(-1.0, evaluator.lower(), 1e-12);
+        assertEquals(1.0, evaluator.upper(), 1e-12);
+    }
+
+    public void testDivisionByIntervalsContainingZero()
+    {
+        IntervalEvaluator evaluator = over("1 / x", 0, 2);
+        assertEquals(0.5, evaluator.lower(), 1e-12);
+        assertEquals(Double.POSITIVE_INFINITY, evaluator.upper(), 0.0);
+
+        evaluator = over("1 / x", -2, 0);
+        assertEquals(Double.NEGATIVE_INFINITY, evaluator.lower(), 0.0);
+
+        evaluator = over("1 / x", -1, 1);
+        assertEquals(Double.NEGATIVE_INFINITY, evaluator.lower(), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, evaluator.upper(), 0.0);
+
+        assertTrue(over("1 / x", 0, 0).isEmpty());
+        assertTrue(over("tan(x)", 1, 2).upper() == Double.POSITIVE_INFINITY);
+    }
+
+    public void testDomainErrorsGiveEmptyIntervals()
+    {
+        assertTrue(over("sqrt(x)", -3, -1).isEmpty());
+        assertTrue(over("asin(x) + 1", 2, 3).isEmpty());
+        assertFalse(over("sqrt(x)", -3, 1).isEmpty());
+    }
+
+    public void testBoundExpressionFrames()
+    {
+        BoundExpression expression = VariableBinder.bind(parse("x * y"), VariableLayout.of("x", "y"));
+        IntervalEvaluator evaluator = new IntervalEvaluator();
+        evaluator.evaluate(expression, new double[] {-1, 2}, new double[] {3, 4});
+        assertEquals(-4.0, evaluator.lower(), 1e-12);
+        assertEquals(12.0, evaluator.upper(), 1e-12);
+    }
+}
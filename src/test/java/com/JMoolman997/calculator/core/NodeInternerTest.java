@@ -0,0 +1,53 @@
+package com.JMoolman997.calculator.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for hash-consing and DAG evaluation.
+ */
+public class NodeInternerTest
+    extends TestCase
+{
+    private static final String SOURCE = "sin(x * y) + sin(x * y) * cos(sin(x * y)) - (x * y) ^ 2";
+
+    public NodeInternerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( NodeInternerTest.class );
+    }
+
+    private static ASTNode parse(String source)
+    {
+        return new Parser(new DfaLexer(source).tokenize()).parse();
+    }
+
+    public void testRepeatedSubtreesAreShared()
+    {
+        ASTNode dag = new NodeInterner().intern(parse(SOURCE));
+        ASTNode sum = dag.getChildren().get(0);
+        ASTNode product = sum.getChildren().get(1);
+        assertSame(sum.getChildren().get(0), product.getChildren().get(0));
+        assertSame(sum.getChildren().get(0).getChildren().get(0), dag.getChildren().get(1).getChildren().get(0));
+    }
+
+    public void testEachDistinctNodeIsEvaluatedOnce()
+    {
+        ASTNode tree = parse(SOURCE);
+        VariableLayout layout = VariableLayout.of("x", "y");
+        DagEvaluator evaluator = new DagEvaluator(new NodeInterner().intern(tree), layout);
+        // x, y, x*y, sin, cos, *, +, 2, ^, -
+        assertEquals(10, evaluator.nodeCount());
+
+        StackMachine machine = new StackMachine(PostfixProgram.compile(tree, layout));
+        for (double x = -1; x <= 1; x += 0.25) {
+            double[] frame = {x, 2 - x};
+            assertEquals(machine.evaluate(frame), evaluator.evaluate(frame), 0.0);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.JMoolman997.calculator.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for the packed tree encoding.
+ */
+public class PackedTreeTest
+    extends TestCase
+{
+    public PackedTreeTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( PackedTreeTest.class );
+    }
+
+    public void testRoundTripAndEvaluation()
+    {
+        ASTNode ast = new Parser(new DfaLexer("sin(x) * y ^ 2 - -x / 3 + sqrt(y)").tokenize()).parse();
+        PackedTree packed = PackedTree.pack(ast);
+        VariableLayout layout = packed.variables();
+        assertEquals("[x, y]", layout.toString());
+        assertEquals(14, packed.size());
+
+        ASTNode unpacked = packed.unpack();
+        StackMachine original = new StackMachine(PostfixProgram.compile(ast, layout));
+        StackMachine roundTrip = new StackMachine(PostfixProgram.compile(unpacked, layout));
+        for (double x = -1; x <= 1; x += 0.25) {
+            double[] frame = {x, 1.5 + x};
+            assertEquals(original.evaluate(frame), packed.evaluate(frame), 0.0);
+            assertEquals(original.evaluate(frame), roundTrip.evaluate(frame), 0.0);
+        }
+    }
+
+    public void testRoundTripsEveryNodeKind()
+    {
+        String[] sources = {
+            "2.5", "x", "-x", "x + y", "x - y", "x * y", "x / y", "x ^ y",
+            "sin(x)", "cos(x)", "tan(x)", "csc(x)", "sec(x)", "cot(x)",
+            "asin(y)", "acos(y)", "atan(x)", "abs(x)", "sqrt(y)"
+        };
+        for (String source : sources) {
+            assertRoundTrip(new Parser(new DfaLexer(source).tokenize()).parse());
+        }
+        assertRoundTrip(new FunctionNode("pow", Arrays.<ASTNode>asList(new VariableNode("x"), new NumberNode(3))));
+    }
+
+    public void testPowCallStaysDistinctFromOperator()
+    {
+        ASTNode call = PackedTree.pack(
+            new FunctionNode("pow", Arrays.<ASTNode>asList(new VariableNode("x"), new VariableNode("y")))).unpack();
+        ASTNode operator = PackedTree.pack(new Parser(new DfaLexer("x ^ y").tokenize()).parse()).unpack();
+        assertEquals("pow(x, y)", describe(call));
+        assertEquals("(x ^ y)", describe(operator));
+    }
+
+    public void testSmallerThanObjectTree()
+    {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        StringBuilder source = new StringBuilder("x");
+        for (int i = 0; i < 200; i++) {
+            source.append(i % 2 == 0 ? " + sin(x) * " + i + ".5" : " - y ^ 2 / sqrt(x)");
+        }
+        PackedTree packed = PackedTree.pack(new Parser(new DfaLexer(source.toString()).tokenize()).parse());
+        // 3 nodes, 1 constant and 1 variable
+        assertEquals(24 + 3 * 16 + 4 * 9 + 8 + 4, PackedTree.pack(
+            new Parser(new DfaLexer("x + 1").tokenize()).parse()).estimatedBytes());
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        ASTNode objects = packed.unpack();
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertNotNull(objects);
+        // The node objects, their child lists and backing arrays take about seven times the packed form
+        assertTrue("Packed " + packed.estimatedBytes() + " bytes, object tree " + allocated + " bytes",
+            allocated > 5 * packed.estimatedBytes());
+    }
+
+    private static void assertRoundTrip(ASTNode ast)
+    {
+        PackedTree packed = PackedTree.pack(ast);
+        ASTNode unpacked = packed.unpack();
+        assertEquals(describe(ast), describe(unpacked));
+
+        VariableLayout layout = packed.variables();
+        StackMachine original = new StackMachine(PostfixProgram.compile(ast, layout));
+        double[] frame = new double[layout.size()];
+        for (double x = 0.25; x <= 1.5; x += 0.25) {
+            // Keep every value inside the domain of asin, acos and sqrt
+            for (int i = 0; i < frame.length; i++) {
+                frame[i] = x / (i + 2);
+            }
+            assertEquals(describe(ast), original.evaluate(frame), packed.evaluate(frame), 0.0);
+        }
+    }
+
+    /**
+     * Renders a tree with its node kinds visible: operators in parentheses,
+     * unary minus as a prefix and calls with their argument lists.
+     */
+    private static String describe(ASTNode node)
+    {
+        if (node instanceof NumberNode) {
+            return Double.toString(((NumberNode) node).value);
+        }
+        if (node instanceof VariableNode) {
+            return ((VariableNode) node).name;
+        }
+        if (node instanceof UnaryOpNode) {
+            return ((UnaryOpNode) node).operator + describe(node.getChildren().get(0));
+        }
+        if (node instanceof BinaryOpNode) {
+            return "(" + describe(node.getChildren().get(0)) + " " + ((BinaryOpNode) node).operator + " "
+                + describe(node.getChildren().get(1)) + ")";
+        }
+        StringBuilder call = new StringBuilder(((FunctionNode) node).name).append('(');
+        for (int i = 0; i < node.getChildren().size(); i++) {
+            call.append(i == 0 ? "" : ", ").append(describe(node.getChildren().get(i)));
+        }
+        return call.append(')').toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.JMoolman997.calculator.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks that parallel evaluation gives the same, ordered results as a single batch.
+ */
+public class ParallelEvaluatorTest
+    extends TestCase
+{
+    public ParallelEvaluatorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ParallelEvaluatorTest.class );
+    }
+
+    public void testMatchesSingleThreadedBatch()
+    {
+        int points = 100_003;
+        double[] xs = new double[points];
+        for (int i = 0; i < points; i++) {
+            xs[i] = i * 0.001;
+        }
+        double[][] columns = {xs};
+        BoundExpression expression = VariableBinder.bind(
+            new Parser(new DfaLexer("sin(x) * x - 3 / (x + 1)").tokenize()).parse());
+
+        double[] expected = new double[points];
+        new BatchEvaluator().evaluate(expression, columns, expected);
+
+        ExecutorService fixed = Executors.newFixedThreadPool(3);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            ExecutorService[] executors = {pool, fixed};
+            for (ExecutorService executor : executors) {
+                double[] out = new double[points];
+                new ParallelEvaluator(executor, 700).evaluate(expression, columns, out);
+                for (int i = 0; i < points; i++) {
+                    assertEquals(expected[i], out[i], 0.0);
+                }
+            }
+        } finally {
+            fixed.shutdown();
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.JMoolman997.calculator.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for the tile-based plot sample cache.
+ */
+public class PlotTileCacheTest
+    extends TestCase
+{
+    public PlotTileCacheTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( PlotTileCacheTest.class );
+    }
+
+    public void testSamplesCoverTheRange()
+    {
+        PlotTileCache cache = new PlotTileCache(1 << 20);
+        SampledCurve curve = cache.sample(Expression.compile("x * x", "x"), "x", -1.3, 2.7, 400);
+        assertTrue(curve.x(0) <= -1.3);
+        assertTrue(curve.x(1) > -1.3);
+        assertTrue(curve.x(curve.size() - 1) >= 2.7);
+        assertTrue(curve.x(curve.size() - 2) < 2.7);
+        assertTrue(curve.size() >= 400 && curve.size() <= 2 * 400 + 2);
+        for (int i = 0; i < curve.size(); i++) {
+            assertEquals(curve.x(i) * curve.x(i), curve.y(i), 0.0);
+        }
+    }
+
+    public void testPanningEvaluatesOnlyNewTiles()
+    {
+        PlotTileCache cache = new PlotTileCache(1 << 20);
+        Expression function = Expression.compile("sin(x)", "x");
+        cache.sample(function, "x", 0, 10, 512);
+        long evaluations = cache.evaluationCount();
+        int tiles = cache.size();
+
+        cache.sample(function, "x", 0, 10, 512);
+        assertEquals(evaluations, cache.evaluationCount());
+
+        // Pan right by a fraction of the view
+        cache.sample(function, "x", 3, 13, 512);
+        long added = cache.evaluationCount() - evaluations;
+        assertTrue(added > 0);
+        assertEquals(added, (cache.size() - tiles) * (long) PlotTileCache.TILE_SAMPLES);
+        assertTrue(cache.hitCount() > 0);
+    }
+
+    public void testZoomingReusesOtherLevels()
+    {
+        PlotTileCache cache = new PlotTileCache(1 << 20);
+        Expression function = Expression.compile("x ^ 3 - x", "x");
+
+        // Fine tiles first, then zoom out: the coarse tiles are built without evaluating
+        cache.sample(function, "x", 0, 4, 1024);
+        long evaluations = cache.evaluationCount();
+        SampledCurve coarse = cache.sample(function, "x", 0, 3.9, 512);
+        assertEquals(evaluations, cache.evaluationCount());
+        for (int i = 0; i < coarse.size(); i++) {
+            double x = coarse.x(i);
+            assertEquals(x * x * x - x, coarse.y(i), 0.0);
+        }
+
+        // Zooming back in from a coarse level evaluates only the missing odd samples
+        PlotTileCache other = new PlotTileCache(1 << 20);
+        other.sample(function, "x", 0, 4, 512);
+        long before = other.evaluationCount();
+        int tiles = other.size();
+        SampledCurve fine = other.sample(function, "x", 0, 2, 512);
+        long added = other.evaluationCount() - before;
+        assertTrue(added <= (other.size() - tiles) * (long) PlotTileCache.TILE_SAMPLES / 2 + 1);
+        for (int i = 0; i < fine.size(); i++) {
+            double x = fine.x(i);
+            assertEquals(x * x * x - x, fine.y(i), 0.0);
+        }
+    }
+
+    public void testMemoryCapEvictsLeastRecentlyUsedTiles()
+    {
+        PlotTileCache cache = new PlotTileCache(4 * PlotTileCache.TILE_BYTES);
+        Expression function = Expression.compile("x", "x");
+        cache.sample(function, "x", 0, 100, 4096);
+        assertTrue(cache.size() <= 4);
+        assertTrue(cache.estimatedBytes() <= 4 * PlotTileCache.TILE_BYTES);
+        assertTrue(cache.evictionCount() > 0);
+    }
+}
@@ -0,0 +1,58 @@
+package com.JMoolman997.calculator.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for constant folding and algebraic simplification.
+ */
+public class SimplifierTest
+    extends TestCase
+{
+    public SimplifierTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( SimplifierTest.class );
+    }
+
+    private static ASTNode parse(String source)
+    {
+        return new Parser(new DfaLexer(source).tokenize()).parse();
+    }
+
+    public void testFoldsConstantSubtrees()
+    {
+        Simplifier simplifier = new Simplifier();
+        ASTNode result = simplifier.simplify(parse("2 * pi * sin(0) + x * (3 - 2)"));
+        assertTrue(result instanceof BinaryOpNode);
+        assertEquals("+", ((BinaryOpNode) result).operator);
+        assertTrue(result.getChildren().get(1) instanceof VariableNode);
+        assertEquals(0.0, ((NumberNode) result.getChildren().get(0)).value, 0.0);
+        assertEquals(12 - 3, simplifier.eliminatedNodes());
+    }
+
+    public void testAppliesIdentities()
+    {
+        Simplifier simplifier = new Simplifier();
+        assertTrue(simplifier.simplify(parse("--(x ^ 1 * 1) / 1")) instanceof VariableNode);
+        assertEquals(1.0, ((NumberNode) simplifier.simplify(parse("x ^ 0"))).value, 0.0);
+        assertTrue(simplifier.simplify(parse("x - 0")) instanceof VariableNode);
+    }
+
+    public void testKeepsSignedZeroSemantics()
+    {
+        ASTNode result = new Simplifier().simplify(parse("x + 0"));
+        assertTrue(result instanceof BinaryOpNode);
+
+        BoundExpression original = VariableBinder.bind(parse("x + 0"));
+        BoundExpression simplified = VariableBinder.bind(result);
+        double[] frame = {-0.0};
+        assertEquals(Double.doubleToRawLongBits(original.evaluate(frame)),
+            Double.doubleToRawLongBits(simplified.evaluate(frame)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.JMoolman997.calculator.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks that compiled postfix programs agree with the tree-walking Evaluator.
+ */
+public class StackMachineTest
+    extends TestCase
+{
+    private static final String[] EXPRESSIONS = {
+        "3 + 5 * (2 - 8)",
+        "-x ^ 2 + 2 ^ -y",
+        "sin(x) * cos(y) / tan(x + y)",
+        "((x - 1) * (x + 1)) / (y * y) - pi",
+        "x / 0"
+    };
+
+    public StackMachineTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( StackMachineTest.class );
+    }
+
+    public void testMatchesEvaluator()
+    {
+        for (String expression : EXPRESSIONS) {
+            ASTNode ast = new Parser(new DfaLexer(expression).tokenize()).parse();
+            PostfixProgram program = PostfixProgram.compile(ast);
+            StackMachine machine = new StackMachine(program);
+            double[] frame = program.layout.newFrame();
+
+            for (double x = -2; x <= 2; x += 0.5) {
+                for (double y = -1; y <= 1; y += 0.25) {
+                    Evaluator evaluator = new Evaluator();
+                    evaluator.setVariable("x", x);
+                    evaluator.setVariable("y", y);
+                    if (program.slotOf("x") >= 0) {
+                        frame[program.slotOf("x")] = x;
+                    }
+                    if (program.slotOf("y") >= 0) {
+                        frame[program.slotOf("y")] = y;
+                    }
+                    assertEquals(expression, ast.accept(evaluator), Double.valueOf(machine.evaluate(frame)));
+                }
+            }
+        }
+    }
+
+    public void testConstantsAndVariablesAreShared()
+    {
+        ASTNode ast = new Parser(new DfaLexer("x * 2 + x * 2").tokenize()).parse();
+        PostfixProgram program = PostfixProgram.compile(ast);
+        assertEquals(1, program.constants.length);
+        assertEquals(1, program.layout.size());
+        assertEquals(3, program.maxStackDepth);
+    }
+
+    public void testUnknownFunctionIsRejectedAtCompileTime()
+    {
+        ASTNode ast = new Parser(new DfaLexer("foo(1)").tokenize()).parse();
+        try {
+            PostfixProgram.compile(ast);
+            fail("Expected an unknown function error");
+        } catch (RuntimeException expected) {
+            assertEquals("Unknown function: foo", expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.JMoolman997.calculator.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for binding variables to frame slots.
+ */
+public class VariableBinderTest
+    extends TestCase
+{
+    public VariableBinderTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( VariableBinderTest.class );
+    }
+
+    private static ASTNode parse(String source)
+    {
+        return new Parser(new DfaLexer(source).tokenize()).parse();
+    }
+
+    public void testEvaluatesAgainstFrame()
+    {
+        BoundExpression expression = VariableBinder.bind(parse("a * b - a"), VariableLayout.of("b", "a"));
+        assertEquals(1, expression.layout().slotOf("a"));
+        assertEquals(12.0 - 3.0, expression.evaluate(new double[] {4, 3}), 0.0);
+    }
+
+    public void testInfersLayoutInOrderOfAppearance()
+    {
+        BoundExpression expression = VariableBinder.bind(parse("sin(y) + x * y"));
+        assertEquals("[y, x]", expression.layout().toString());
+    }
+
+    public void testUndefinedVariableIsReportedAtBindTime()
+    {
+        try {
+            VariableBinder.bind(parse("a + c"), VariableLayout.of("a", "b"));
+            fail("Expected an undefined variable error");
+        } catch (RuntimeException expected) {
+            assertEquals("Undefined variable: c", expected.getMessage());
+        }
+    }
+
+    public void testSourceTreeIsLeftUnbound()
+    {
+        ASTNode source = parse("x");
+        VariableBinder.bind(source);
+        assertEquals(-1, ((VariableNode) source).slot);
+    }
+}
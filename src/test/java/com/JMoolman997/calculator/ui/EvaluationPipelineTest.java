@@ -0,0 +1,112 @@
+package com.JMoolman997.calculator.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for the off-EDT evaluation pipeline.
+ */
+public class EvaluationPipelineTest
+    extends TestCase
+{
+    public EvaluationPipelineTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( EvaluationPipelineTest.class );
+    }
+
+    public void testEvaluatesFormulas()
+    {
+        assertEquals(7.0, EvaluationPipeline.evaluate("1 + 2 * 3").getValue(), 0.0);
+        assertEquals("Undefined variable: x", EvaluationPipeline.evaluate("x + 1").getError());
+        assertTrue(EvaluationPipeline.evaluate("1 +").isError());
+        // Only formulas are accepted, not everything Double.parseDouble reads
+        for (String source : new String[] {"0x1p4", "2d", "3f", "1.0E7"}) {
+            assertTrue(source, EvaluationPipeline.evaluate(source).isError());
+        }
+    }
+
+    public void testFormatsResultsAsFormulas()
+    {
+        for (double value : new double[] {1.0E7, 2.5E-8, -3.0, 0.1, 123.456, Double.MAX_VALUE, 0}) {
+            String text = EvaluationPipeline.format(value);
+            assertEquals(text, value, EvaluationPipeline.evaluate(text).getValue(), 0.0);
+        }
+        assertEquals("10000000", EvaluationPipeline.format(1.0E7));
+        assertEquals(10000001.0, EvaluationPipeline.evaluate(EvaluationPipeline.format(1.0E7) + " + 1").getValue(), 0.0);
+        assertEquals("NaN", EvaluationPipeline.format(Double.NaN));
+    }
+
+    public void testCombinesEvaluatedOperands()
+    {
+        EvaluationPipeline.Result sum = combine("2 * 3", '+', "4");
+        assertFalse(sum.getError(), sum.isError());
+        assertEquals("(2 * 3) + (4)", sum.getSource());
+        assertEquals(10.0, sum.getValue(), 0.0);
+        assertEquals(10000003.0, combine(EvaluationPipeline.format(1.0E7), '+', "3").getValue(), 0.0);
+        assertEquals(2.5E-8, combine(EvaluationPipeline.format(5.0E-8), '/', "1 + 1").getValue(), 0.0);
+        assertEquals(-6.0, combine("2", '*', "-3").getValue(), 0.0);
+        assertEquals(-1.0, combine("2", '-', "3").getValue(), 0.0);
+
+        assertEquals(EvaluationPipeline.DIVIDE_BY_ZERO, combine("0", '/', "0").getError());
+        assertEquals(EvaluationPipeline.DIVIDE_BY_ZERO, combine("5", '/', "2 - 2").getError());
+        assertEquals("Undefined variable: y", combine("5", '+', "y").getError());
+        assertEquals("Undefined variable: z", combine("z", '+', "y").getError());
+        assertTrue(combine("", '+', "1").isError());
+    }
+
+    private static EvaluationPipeline.Result combine(String left, char operator, String right)
+    {
+        return EvaluationPipeline.combine(EvaluationPipeline.evaluate(left), operator, EvaluationPipeline.evaluate(right));
+    }
+
+    public void testDeliversOnlyTheLatestResult() throws Exception
+    {
+        List<EvaluationPipeline.Result> results = new ArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        EvaluationPipeline[] pipeline = new EvaluationPipeline[1];
+        SwingUtilities.invokeAndWait(() -> {
+            pipeline[0] = new EvaluationPipeline(20, result -> {
+                results.add(result);
+                delivered.countDown();
+            });
+            // A burst of edits is debounced, and an immediate submission supersedes it
+            pipeline[0].submit("1");
+            pipeline[0].submit("1 + 1");
+            pipeline[0].submitNow("2 * 2");
+            pipeline[0].submitNow("2 * 5", '-', "1 + 2");
+        });
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        // Give any superseded job time to try to publish
+        Thread.sleep(200);
+        SwingUtilities.invokeAndWait(() -> { });
+        assertEquals(1, results.size());
+        assertEquals(7.0, results.get(0).getValue(), 0.0);
+    }
+
+    public void testCancelDropsPendingResults() throws Exception
+    {
+        List<EvaluationPipeline.Result> results = new ArrayList<>();
+        SwingUtilities.invokeAndWait(() -> {
+            EvaluationPipeline pipeline = new EvaluationPipeline(20, results::add);
+            pipeline.submit("1");
+            pipeline.submitNow("2");
+            pipeline.cancel();
+        });
+        Thread.sleep(200);
+        SwingUtilities.invokeAndWait(() -> { });
+        assertTrue(results.isEmpty());
+    }
+}